@@ -21,11 +21,12 @@
  */
 package dk.dtu.compute.se.pisd.designpatterns.observer;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Set;
-import java.util.WeakHashMap;
-
-// import java.util.HashSet;
 
 /**
  * This is the subject of the observer design pattern roughly following
@@ -36,14 +37,86 @@ import java.util.WeakHashMap;
  */
 public abstract class Subject {
 	
-	private Set<Observer> observers =
-			Collections.newSetFromMap(new WeakHashMap<>());
+	private WeakReference<Observer>[] observers = null;
 	// Note: In JavaFX, the views do not have a way to know when they are
 	// removed from the window, and therefore cannot always unregister
 	// themselves from subjects they observe before the views become garbage.
-	// Therefore, the set of observers are maintained as a weak set, so
+	// Therefore, the observers are maintained by weak references, so
 	// that these observers are implicitly removed, when the observers
 	// would be garbage (if not for these references)!
+	//
+	// Most subjects (in particular in simulations without a GUI) do not
+	// have any observers at all. Therefore, the array is allocated only
+	// when the first observer is attached (and dropped again, when the
+	// last one is detached). The array is never changed in place, but
+	// replaced on attach and detach (copy on write); so notifying the
+	// observers is safe, even if an observer detaches during an update.
+
+	/**
+	 * The state of a batch of changes on the current thread: the depth of
+	 * nested batches and the subjects that changed within the batch (in
+	 * the order of their first change). Since this state belongs to the
+	 * thread, subjects can be changed in batches on different threads at
+	 * the same time.
+	 */
+	private static class Batch {
+		int depth = 0;
+		final List<Subject> changed = new ArrayList<>();
+		final Set<Subject> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+	}
+
+	private static final ThreadLocal<Batch> batch = ThreadLocal.withInitial(Batch::new);
+
+	/**
+	 * Starts a batch of changes on the current thread. Until the batch is
+	 * committed by {@link #commitBatch()}, the observers of changed subjects
+	 * are not notified; at the commit, the observers of each changed subject
+	 * are notified exactly once, no matter how often the subject changed.
+	 * Batches can be nested; the notifications are sent when the outermost
+	 * batch is committed. A batch belongs to the thread that began it, and
+	 * must be committed on the same thread.
+	 */
+	public static void beginBatch() {
+		batch.get().depth++;
+	}
+
+	/**
+	 * Commits the current batch of changes (see {@link #beginBatch()}). If
+	 * an observer throws an exception, the remaining observers are not
+	 * notified, but the batch is closed nevertheless.
+	 */
+	public static void commitBatch() {
+		Batch current = batch.get();
+		if (current.depth == 0) {
+			throw new IllegalStateException("There is no batch of changes to commit!");
+		}
+		if (--current.depth == 0) {
+			// notifications sent during the commit are not batched anymore;
+			// subjects changed by an observer are notified right away.
+			try {
+				for (int i = 0; i < current.changed.size(); i++) {
+					current.changed.get(i).notifyObservers();
+				}
+			} finally {
+				current.changed.clear();
+				current.dirty.clear();
+			}
+		}
+	}
+
+	/**
+	 * Runs the given code as a batch of changes (see {@link #beginBatch()}).
+	 *
+	 * @param code the code to run
+	 */
+	public static void batch(Runnable code) {
+		beginBatch();
+		try {
+			code.run();
+		} finally {
+			commitBatch();
+		}
+	}
 
 	/**
 	 * This methods allows an observer to register with the subject
@@ -52,7 +125,21 @@ public abstract class Subject {
 	 * @param observer the observer who registers
 	 */
 	final public void attach(Observer observer) {
-		observers.add(observer);
+		WeakReference<Observer>[] current = observers;
+		List<WeakReference<Observer>> result = new ArrayList<>(current == null ? 1 : current.length + 1);
+		if (current != null) {
+			for (WeakReference<Observer> reference : current) {
+				Observer other = reference.get();
+				if (other == observer) {
+					return;
+				} else if (other != null) {
+					// observers which are garbage already are dropped
+					result.add(reference);
+				}
+			}
+		}
+		result.add(new WeakReference<>(observer));
+		observers = toArray(result);
 	}
 	
 	/**
@@ -62,7 +149,24 @@ public abstract class Subject {
 	 * @param observer the observer who unregisters
 	 */
 	final public void detach(Observer observer) {
-		observers.remove(observer);
+		WeakReference<Observer>[] current = observers;
+		if (current == null) {
+			return;
+		}
+		List<WeakReference<Observer>> result = new ArrayList<>(current.length);
+		for (WeakReference<Observer> reference : current) {
+			Observer other = reference.get();
+			if (other != null && other != observer) {
+				result.add(reference);
+			}
+		}
+		observers = result.isEmpty() ? null : toArray(result);
+	}
+
+	// arrays of a generic type cannot be created directly
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static WeakReference<Observer>[] toArray(List<WeakReference<Observer>> references) {
+		return references.toArray(new WeakReference[0]);
 	}
 	
 	/**
@@ -71,8 +175,29 @@ public abstract class Subject {
 	 * relevant for the observer).
 	 */
 	final protected void notifyChange() {
-		for (Observer observer: observers) {
-			observer.update(this);
+		if (observers == null) {
+			// fast path: there is nobody to notify
+			return;
+		}
+		Batch current = batch.get();
+		if (current.depth > 0) {
+			if (current.dirty.add(this)) {
+				current.changed.add(this);
+			}
+		} else {
+			notifyObservers();
+		}
+	}
+
+	private void notifyObservers() {
+		WeakReference<Observer>[] current = observers;
+		if (current != null) {
+			for (WeakReference<Observer> reference : current) {
+				Observer observer = reference.get();
+				if (observer != null) {
+					observer.update(this);
+				}
+			}
 		}
 	}
 
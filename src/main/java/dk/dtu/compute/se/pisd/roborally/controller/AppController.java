@@ -24,6 +24,7 @@ package dk.dtu.compute.se.pisd.roborally.controller;
 import dk.dtu.compute.se.pisd.designpatterns.observer.Observer;
 import dk.dtu.compute.se.pisd.designpatterns.observer.Subject;
 import dk.dtu.compute.se.pisd.roborally.RoboRally;
+import dk.dtu.compute.se.pisd.roborally.dal.RepositoryAccess;
 import dk.dtu.compute.se.pisd.roborally.model.Board;
 import dk.dtu.compute.se.pisd.roborally.model.Phase;
 import dk.dtu.compute.se.pisd.roborally.model.Player;
@@ -37,6 +38,8 @@ import java.awt.Dialog;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The main controller for the RoboRally application. This class manages the game's lifecycle,
@@ -51,10 +54,17 @@ public class AppController implements Observer {
     final private List<String> PLAYER_COLORS = Arrays.asList("red", "green", "blue", "orange", "grey", "magenta");
     final private List<String> BOARD_OPTIONS = Arrays.asList("Simple", "Advanced");
 
+    // how long the application waits on exit for the saves to be written
+    final private static long EXIT_TIMEOUT = 5;
+
     final private RoboRally roboRally;
 
     private GameController gameController;
 
+    // whether the user was told that saving failed; reset when a save
+    // succeeds again, so that failing autosaves are reported only once
+    private boolean saveFailureShown = false;
+
     public AppController(@NotNull RoboRally roboRally) {
         this.roboRally = roboRally;
     }
@@ -89,6 +99,8 @@ public class AppController implements Observer {
             //     here we just create an empty board with the required number of players.
             Board board = BoardFactory.getInstance().createBoard(result2.get());
             gameController = new GameController(board);
+            gameController.setGameOverListener(this::showGameOver);
+            board.attach(this);
             int no = result.get();
             for (int i = 0; i < no; i++) {
                 Player player = new Player(board, PLAYER_COLORS.get(i), "Player " + (i + 1));
@@ -105,13 +117,30 @@ public class AppController implements Observer {
     }
 
     /**
-     * Saves the current game state. This method is currently a placeholder and needs to be implemented
-     * in future versions of the application.
-     *
-     * @todo Implement game saving functionality.
+     * Saves the current game state to the database. The game is saved in the
+     * background (see {@link dk.dtu.compute.se.pisd.roborally.dal.GamePersister}),
+     * so that this method does not wait for the database.
      */
     public void saveGame() {
-        // TODO V4a: needs to be implemented
+        if (gameController != null) {
+            Board board = gameController.board;
+            // the result is handled on the JavaFX thread, which is the
+            // thread playing the game
+            RepositoryAccess.getPersister().save(board).whenComplete((gameId, error) -> Platform.runLater(() -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ?
+                            error.getCause() : error;
+                    showSaveFailure(cause.getMessage());
+                } else if (gameId == null) {
+                    showSaveFailure("The database did not accept the game.");
+                } else {
+                    saveFailureShown = false;
+                    if (board.getGameId() == null) {
+                        board.setGameId(gameId);
+                    }
+                }
+            }));
+        }
     }
 
     /**
@@ -169,9 +198,46 @@ public class AppController implements Observer {
         // If the user did not cancel, the RoboRally application will exit
         // after the option to save the game
         if (gameController == null || stopGame()) {
-            Platform.exit();
+            // the saves which were not written yet are written before the
+            // application exits; but the JavaFX thread does not wait for them,
+            // and if the database does not answer, the application exits anyway
+            RepositoryAccess.getPersister().flush()
+                    .orTimeout(EXIT_TIMEOUT, TimeUnit.SECONDS)
+                    .whenComplete((result, error) -> Platform.exit());
         }
     }
+    /**
+     * Tells the user that the game could not be saved; the changes are saved
+     * with the next save of the game. As long as the saves keep failing,
+     * this is shown only once.
+     *
+     * @param reason the reason why the game could not be saved
+     */
+    private void showSaveFailure(String reason) {
+        if (!saveFailureShown) {
+            saveFailureShown = true;
+            Alert alert = new Alert(AlertType.ERROR, reason);
+            alert.setTitle("Saving failed");
+            alert.setHeaderText("The game could not be saved!");
+            alert.show();
+        }
+    }
+
+    /**
+     * Shows the winner of a game that is over to the user.
+     *
+     * @param board the board of the game that is over
+     * @param winner the winner of the game
+     */
+    private void showGameOver(Board board, Player winner) {
+        Alert alert = new Alert(AlertType.INFORMATION, "Game Over! Thanks for playing.");
+        alert.setTitle("End Screen");
+        if (winner != null) {
+            alert.setHeaderText(winner.getColor().toUpperCase() + " Player wins");
+        }
+        alert.show();
+    }
+
     /**
      * Checks if a game is currently running.
      *
@@ -183,14 +249,21 @@ public class AppController implements Observer {
 
 
     /**
-     * Updates the observer with changes from the observed subject. This method is part of the
-     * Observer interface and is currently a placeholder for future implementation.
+     * Updates the observer with changes from the observed subject. When the
+     * board of a game which was saved before changes, the game is saved
+     * again automatically; since the saves are written in the background
+     * and coalesced, this is cheap even if it happens after every register.
      *
      * @param subject The subject that triggered the update.
      */
     @Override
     public void update(Subject subject) {
-        // XXX do nothing for now
+        if (gameController != null && subject == gameController.board) {
+            Board board = gameController.board;
+            if (board.getGameId() != null && board.getChanges() != 0) {
+                saveGame();
+            }
+        }
     }
 
 }
@@ -1,9 +1,14 @@
 package dk.dtu.compute.se.pisd.roborally.controller;
 
+import dk.dtu.compute.se.pisd.roborally.fileaccess.LoadBoard;
 import dk.dtu.compute.se.pisd.roborally.model.Board;
+import dk.dtu.compute.se.pisd.roborally.model.BoardLayout;
 import dk.dtu.compute.se.pisd.roborally.model.Heading;
 import dk.dtu.compute.se.pisd.roborally.model.Space;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * A factory for creating boards. The factory itself is implemented as a singleton.
  *
@@ -17,6 +22,14 @@ public class BoardFactory {
      */
     static private BoardFactory instance = null;
 
+    /**
+     * The layouts of the boards created so far, by their names; they are
+     * shared by all games on the same board. This is the only cache of
+     * layouts; {@link LoadBoard#loadBoard(String)} takes its layouts
+     * from here, too.
+     */
+    private final Map<String, BoardLayout> layouts = new ConcurrentHashMap<>();
+
     /**
      * Constructor for BoardFactory. It is private in order to make the factory a singleton.
      */
@@ -25,11 +38,12 @@ public class BoardFactory {
 
     /**
      * Returns the single instance of this factory. The instance is lazily
-     * instantiated when requested for the first time.
+     * instantiated when requested for the first time (this is synchronized,
+     * since boards might be created by parallel simulations).
      *
      * @return the single instance of the BoardFactory
      */
-    public static BoardFactory getInstance() {
+    public static synchronized BoardFactory getInstance() {
         if (instance == null) {
             instance = new BoardFactory();
         }
@@ -38,23 +52,47 @@ public class BoardFactory {
 
     /**
      * Creates a new board of given name of a board, which indicates
-     * which type of board should be created. For now the name is ignored.
+     * which type of board should be created. The layout of each type of
+     * board is set up only once and then shared by all the boards of that
+     * type (see {@link BoardLayout}).
      *
      * @param name the given name board
      * @return the new board corresponding to that name
      */
     public Board createBoard(String name) {
+        if (!"Simple".equals(name) && !"Advanced".equals(name)) {
+            name = "<none>";
+        }
+        return new Board(getLayout(name));
+    }
 
-        Board board;
-        if ("Simple".equals(name)) {
-            board = createSimpleBoard();
-        } else if ("Advanced".equals(name)) {
-            board = createAdvancedBoard();
-        } else {
-            board = new Board(8,8, "<none>");
+    /**
+     * Returns the layout of the board with the given name, which is shared
+     * by all games on that board. The layout is created when it is requested
+     * for the first time: from the JSON file of the board, if there is one
+     * (see {@link LoadBoard#readBoard(String)}), and otherwise by setting up
+     * the board in this factory.
+     *
+     * @param name the name of the board
+     * @return the layout of the board
+     */
+    public BoardLayout getLayout(String name) {
+        return layouts.computeIfAbsent(name, this::createLayout);
+    }
+
+    private BoardLayout createLayout(String name) {
+        Board board = LoadBoard.readBoard(name);
+        if (board == null) {
+            if ("Simple".equals(name)) {
+                board = createSimpleBoard();
+            } else if ("Advanced".equals(name)) {
+                board = createAdvancedBoard();
+            } else {
+                board = new Board(8,8, "<none>");
+            }
         }
 
-        return board;
+        return BoardLayout.of(board);
     }
     /**
      * Creates a simple game board for testing or initialization.
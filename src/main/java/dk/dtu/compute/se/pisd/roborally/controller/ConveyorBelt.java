@@ -68,14 +68,10 @@ public class ConveyorBelt extends FieldAction {
     public boolean doAction(@NotNull GameController gameController, @NotNull Space space) {
         if (space.getPlayer() != null) {
             Space newSpace = gameController.board.getNeighbour(space, heading);
-            try {
-                gameController.moveToSpace(space.getPlayer(), newSpace, heading);
-            } catch (GameController.ImpossibleMoveException e) {
-                // when pushing not possible due to wall
-                System.out.println(e.getMessage() + e.player + "while on ConveyorBelt");
-                return false;
+            if (newSpace != null) {
+                // false, when pushing is not possible due to a wall
+                return gameController.moveToSpace(space.getPlayer(), newSpace, heading);
             }
-
         }
         return true;
     }
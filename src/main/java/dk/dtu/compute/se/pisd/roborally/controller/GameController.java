@@ -21,15 +21,23 @@
  */
 package dk.dtu.compute.se.pisd.roborally.controller;
 
+import dk.dtu.compute.se.pisd.designpatterns.observer.Subject;
+import dk.dtu.compute.se.pisd.roborally.engine.ConveyorGraph;
+import dk.dtu.compute.se.pisd.roborally.engine.GameJournal;
+import dk.dtu.compute.se.pisd.roborally.engine.GameOverListener;
+import dk.dtu.compute.se.pisd.roborally.engine.ProgramOutcomes;
 import dk.dtu.compute.se.pisd.roborally.model.*;
-import javafx.scene.control.Alert;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Arrays;
+
 /**
  * The main controller for managing the game logic in RoboRally. This class handles player
  * movements, game phases, command execution, and interactions between players and the
  * game board. It is tightly integrated with the Board, Player, and FieldAction classes
- * to provide a cohesive gameplay experience.
+ * to provide a cohesive gameplay experience. The controller does not depend on JavaFX;
+ * the end of a game is reported to a {@link GameOverListener}, so that the same rules can
+ * be run by the GUI and by the headless {@link dk.dtu.compute.se.pisd.roborally.engine.GameEngine}.
  *
  * @author Ekkart Kindler, ekki@dtu.dk
  */
@@ -37,10 +45,60 @@ public class GameController {
 
     final public Board board;
 
+    private GameOverListener gameOverListener;
+
+    private GameJournal journal;
+
+    private ConveyorGraph conveyors;
+
+    // the cells of the players, for resolving the moves of the conveyor belts
+    private int[] cells = new int[0];
+
+    // the positions and checkpoints of the players before the field actions
+    // are executed; these are used for recording the results of the field
+    // actions in the journal
+    private Space[] spacesBefore = new Space[0];
+    private int[] checkpointsBefore = new int[0];
+
+    // the players pushed by a move and the spaces they are pushed to; these
+    // arrays are reused for all moves, and grown when needed
+    private Player[] pushedPlayers = new Player[0];
+    private Space[] pushedTargets = new Space[0];
+
     public GameController(@NotNull Board board) {
         this.board = board;
     }
 
+    /**
+     * Sets the listener which is informed when the game is over. The GUI uses this
+     * to show the winner of the game to the user.
+     *
+     * @param gameOverListener the listener (might be null)
+     */
+    public void setGameOverListener(GameOverListener gameOverListener) {
+        this.gameOverListener = gameOverListener;
+    }
+
+    /**
+     * Sets the journal, in which the executed commands, the results of the field
+     * actions and the phase transitions of the game are recorded from now on.
+     *
+     * @param journal the journal (null, if the game should not be recorded)
+     */
+    public void setJournal(GameJournal journal) {
+        this.journal = journal;
+    }
+
+    public GameJournal getJournal() {
+        return journal;
+    }
+
+    private void journalPhase() {
+        if (journal != null) {
+            journal.phase(board.getPhase(), board.getStep(), board.getCurrentPlayerNumber());
+        }
+    }
+
     /**
      * Moves the current player to the specified space. This method is a placeholder and
      * should be implemented to handle player movement, including checking for obstacles
@@ -55,7 +113,7 @@ public class GameController {
         }
         Player curr = board.getCurrentPlayer();
         curr.setSpace(space);
-        board.setCurrentPlayer(board.getPlayer((board.getPlayerNumber(curr)+1)% board.getPlayersNumber()));
+        board.setCurrentPlayer(board.getPlayer((board.getCurrentPlayerNumber()+1)% board.getPlayersNumber()));
         board.setCounter(board.getCounter()+1);
     }
 
@@ -64,8 +122,9 @@ public class GameController {
      * Starts the programming phase of the game.
      *
      * Sets the game phase to {@link Phase#PROGRAMMING}, resets the current player to the first player,
-     * and initializes the step counter to 0. Clears all program fields and generates random command cards
-     * for each player's hand.
+     * and initializes the step counter to 0. The cards of the previous round (in the program fields and
+     * the player's hand) are put on the discard pile of the player's {@link Deck}; then, new cards are
+     * drawn from the deck for each player's hand.
      * This method prepares the game for players to program their robots by selecting and placing
      * command cards into their program registers.
      *
@@ -73,43 +132,53 @@ public class GameController {
      * @see Player
      * @see CommandCardField
      * @see CommandCard
-     * @see #generateRandomCommandCard()
+     * @see Deck
      */
     public void startProgrammingPhase() {
-        board.setPhase(Phase.PROGRAMMING);
-        board.setCurrentPlayer(board.getPlayer(0));
-        board.setStep(0);
+        Subject.beginBatch();
+        try {
+            board.setPhase(Phase.PROGRAMMING);
+            board.setCurrentPlayer(board.getPlayer(0));
+            board.setStep(0);
 
-        for (int i = 0; i < board.getPlayersNumber(); i++) {
-            Player player = board.getPlayer(i);
-            if (player != null) {
-                for (int j = 0; j < Player.NO_REGISTERS; j++) {
-                    CommandCardField field = player.getProgramField(j);
-                    field.setCard(null);
-                    field.setVisible(true);
-                }
-                for (int j = 0; j < Player.NO_CARDS; j++) {
-                    CommandCardField field = player.getCardField(j);
-                    field.setCard(generateRandomCommandCard());
-                    field.setVisible(true);
+            for (int i = 0; i < board.getPlayersNumber(); i++) {
+                Player player = board.getPlayer(i);
+                if (player != null) {
+                    Deck deck = player.getDeck();
+                    for (int j = 0; j < Player.NO_REGISTERS; j++) {
+                        CommandCardField field = player.getProgramField(j);
+                        discard(deck, field);
+                        field.setVisible(true);
+                    }
+                    for (int j = 0; j < Player.NO_CARDS; j++) {
+                        discard(deck, player.getCardField(j));
+                    }
+                    for (int j = 0; j < Player.NO_CARDS; j++) {
+                        CommandCardField field = player.getCardField(j);
+                        field.setCard(deck.draw(board.getRandom()));
+                        field.setVisible(true);
+                    }
                 }
             }
+            journalPhase();
+        } finally {
+            Subject.commitBatch();
         }
     }
 
     /**
-     * Generates a random command card for use in the game.
+     * Puts the card of the given field (if any) on the discard pile of the deck
+     * and removes it from the field.
      *
-     * This method selects a random command from the available commands in the {@link Command} enum
-     * and creates a new {@link CommandCard} with the selected command.
-     * @return A randomly generated {@link CommandCard}.
-     * @see Command
-     * @see CommandCard
+     * @param deck the deck of the player
+     * @param field the card field
      */
-    private CommandCard generateRandomCommandCard() {
-        Command[] commands = Command.values();
-        int random = (int) (Math.random() * commands.length);
-        return new CommandCard(commands[random]);
+    private void discard(@NotNull Deck deck, @NotNull CommandCardField field) {
+        CommandCard card = field.getCard();
+        if (card != null) {
+            deck.discard(card);
+            field.setCard(null);
+        }
     }
 
     /**
@@ -123,11 +192,17 @@ public class GameController {
      * @see #makeProgramFieldsVisible(int)
      */
     public void finishProgrammingPhase() {
-        makeProgramFieldsInvisible();
-        makeProgramFieldsVisible(0);
-        board.setPhase(Phase.ACTIVATION);
-        board.setCurrentPlayer(board.getPlayer(0));
-        board.setStep(0);
+        Subject.beginBatch();
+        try {
+            makeProgramFieldsInvisible();
+            makeProgramFieldsVisible(0);
+            board.setPhase(Phase.ACTIVATION);
+            board.setCurrentPlayer(board.getPlayer(0));
+            board.setStep(0);
+            journalPhase();
+        } finally {
+            Subject.commitBatch();
+        }
     }
 
     /**
@@ -190,15 +265,108 @@ public class GameController {
 
     /**
      * Continues executing the player programs until the activation phase is complete or step
-     * mode is active. This method displays a game-over message if the game is finished.
+     * mode is active. The changes of the model are notified to the observers in one batch
+     * (see {@link Subject#beginBatch()}). This method informs the game over listener if the
+     * game is finished.
      */
     private void continuePrograms() {
-        do {
-            executeNextStep();
-        } while (board.getPhase() == Phase.ACTIVATION && !board.isStepMode());
-        if (board.getPhase() == Phase.FINISHED) {
-            showGameOver();
+        // all changes of the executed steps are sent to the views in one batch,
+        // so that each changed space, player, etc. is updated only once
+        Subject.beginBatch();
+        try {
+            if (board.isStepMode() || !executeIndependentPrograms()) {
+                do {
+                    executeNextStep();
+                } while (board.getPhase() == Phase.ACTIVATION && !board.isStepMode());
+            }
+        } finally {
+            Subject.commitBatch();
         }
+        if (board.getPhase() == Phase.FINISHED && gameOverListener != null) {
+            gameOverListener.gameOver(board, board.getWinner());
+        }
+    }
+
+    /**
+     * Returns the cache of the outcomes of the programs of single robots on the
+     * board of this game controller (see {@link ProgramOutcomes#of(Board)}).
+     *
+     * @return the outcomes of programs on the board
+     */
+    public ProgramOutcomes getProgramOutcomes() {
+        return ProgramOutcomes.of(board);
+    }
+
+    /**
+     * Executes all registers of all players at once, if the robots are so far
+     * apart from each other that none of them can get in the way of another
+     * during the round. Then, the result of each program is looked up in the
+     * {@link ProgramOutcomes} of the board and the robots are put there directly,
+     * and the next programming phase is started. This is done only at the
+     * beginning of the activation phase, if all players have complete programs
+     * without interactive cards, if no robot would win the game during the
+     * round, and if the game is not recorded in a journal; otherwise, false is
+     * returned and nothing is changed, so that the registers can be executed
+     * one by one.
+     *
+     * @return true if the round was executed, false otherwise
+     */
+    public boolean executeIndependentPrograms() {
+        if (board.getPhase() != Phase.ACTIVATION || board.getStep() != 0 || journal != null
+                || board.getCurrentPlayer() != board.getPlayer(0)) {
+            return false;
+        }
+        int players = board.getPlayersNumber();
+        int[] cells = new int[players];
+        long[] results = new long[players];
+        ProgramOutcomes outcomes = getProgramOutcomes();
+        for (int i = 0; i < players; i++) {
+            Player player = board.getPlayer(i);
+            Space space = player.getSpace();
+            if (space == null) {
+                cells[i] = -1;
+                continue;
+            }
+            int program = ProgramOutcomes.encode(player);
+            if (program < 0) {
+                return false;
+            }
+            for (int j = 0; j < Player.NO_REGISTERS; j++) {
+                if (player.getProgramField(j).getCard().command.isInteractive()) {
+                    return false;
+                }
+            }
+            cells[i] = board.getIndex(space);
+            results[i] = outcomes.outcome(cells[i], player.getHeading().ordinal(),
+                    player.getCurrentCheckpoint(), program);
+            if (ProgramOutcomes.winner(results[i]) >= 0) {
+                return false;
+            }
+            for (int j = 0; j < i; j++) {
+                if (cells[j] >= 0 && !outcomes.apart(cells[i], results[i], cells[j], results[j])) {
+                    return false;
+                }
+            }
+        }
+
+        Heading[] headings = Heading.values();
+        // first remove all players from their spaces, so that a player
+        // never is put on a space that is still occupied
+        for (int i = 0; i < players; i++) {
+            if (cells[i] >= 0) {
+                board.getPlayer(i).setSpace(null);
+            }
+        }
+        for (int i = 0; i < players; i++) {
+            if (cells[i] >= 0) {
+                Player player = board.getPlayer(i);
+                player.setSpace(board.getSpace(ProgramOutcomes.cell(results[i])));
+                player.setHeading(headings[ProgramOutcomes.heading(results[i])]);
+                player.setCurrentCheckpoint(ProgramOutcomes.checkpoint(results[i]));
+            }
+        }
+        startProgrammingPhase();
+        return true;
     }
 
     /**
@@ -214,7 +382,7 @@ public class GameController {
      * @see #executeCommand(Player, Command)
      * @see #startProgrammingPhase()
      */
-    void executeNextStep() {
+    public void executeNextStep() {
         Player currentPlayer = board.getCurrentPlayer();
         if ((board.getPhase() == Phase.ACTIVATION || board.getPhase() == Phase.INTERACTED)&& currentPlayer != null) {
             int step = board.getStep();
@@ -230,17 +398,23 @@ public class GameController {
                     }
 
                 }
-                int nextPlayerNumber = board.getPlayerNumber(currentPlayer) + 1;
+                int nextPlayerNumber = board.getCurrentPlayerNumber() + 1;
                 board.setPhase(Phase.ACTIVATION);
                 if (nextPlayerNumber < board.getPlayersNumber()) {
                     board.setCurrentPlayer(board.getPlayer(nextPlayerNumber));
                 } else {
                     doAllAction();
+                    if (board.getPhase() == Phase.FINISHED) {
+                        // the game was won by a field action; it must not
+                        // continue with the next register
+                        return;
+                    }
                     step++;
                     if (step < Player.NO_REGISTERS) {
                         makeProgramFieldsVisible(step);
                         board.setStep(step);
                         board.setCurrentPlayer(board.getPlayer(0));
+                        journalPhase();
                     } else {
                         startProgrammingPhase();
                     }
@@ -256,18 +430,131 @@ public class GameController {
     }
 
     /**
-     * Executes all field actions on the board, such as conveyor belts and checkpoints. This
-     * method iterates through all spaces on the board and executes the actions associated
-     * with each space.
+     * Executes all field actions on the board, such as conveyor belts and checkpoints. First,
+     * all players on conveyor belts are moved at once by the {@link ConveyorGraph} of the board,
+     * each by one space at most, independently of the order of the spaces. Then, the other
+     * actions of the spaces are executed column by column (in the order of
+     * {@link Board#getActionOrder(Space)}) on the new positions of the players. Since field
+     * actions only do something when there is a player on the space, only the spaces which are
+     * occupied by a player and have field actions are visited; so the cost depends on the number
+     * of players and not on the size of the board.
      */
     public void doAllAction(){
-        for (int x = 0; x<board.width; x++) {
-            for (int y =0; y < board.height; y++) {
-                Space space = board.getSpace(x, y);
-                for (FieldAction fa : space.getActions()) {
-                    fa.doAction(this, space);
+        if (journal != null) {
+            recordPlayers();
+        }
+        executeFieldActions();
+        if (journal != null) {
+            journalFieldActions();
+        }
+    }
+
+    /**
+     * Returns the flow graph of the conveyor belts of the board, which is compiled
+     * when it is needed first and again when the layout of the board has changed.
+     *
+     * @return the conveyor belts of the board
+     */
+    public ConveyorGraph getConveyorGraph() {
+        if (conveyors == null || conveyors.getLayoutVersion() != board.getLayoutVersion()) {
+            conveyors = new ConveyorGraph(board);
+        }
+        return conveyors;
+    }
+
+    private void executeFieldActions() {
+        moveConveyorBelts();
+        // the other field actions do not move the players, so each
+        // occupied space is visited only once
+        int last = -1;
+        while (true) {
+            Space next = null;
+            int nextOrder = Integer.MAX_VALUE;
+            for (int i = 0; i < board.getPlayersNumber(); i++) {
+                Space space = board.getPlayer(i).getSpace();
+                if (space != null) {
+                    int order = board.getActionOrder(space);
+                    if (order > last && order < nextOrder) {
+                        next = space;
+                        nextOrder = order;
+                    }
                 }
             }
+            if (next == null) {
+                return;
+            }
+            for (FieldAction fa : next.getActions()) {
+                if (!(fa instanceof ConveyorBelt)) {
+                    fa.doAction(this, next);
+                }
+            }
+            last = nextOrder;
+        }
+    }
+
+    /**
+     * Moves all players on conveyor belts at once, each player by one space
+     * at most (see {@link ConveyorGraph#resolve(int[])}).
+     */
+    private void moveConveyorBelts() {
+        ConveyorGraph graph = getConveyorGraph();
+        if (!graph.hasBelts()) {
+            return;
+        }
+        int players = board.getPlayersNumber();
+        if (cells.length != players) {
+            cells = new int[players];
+        }
+        for (int i = 0; i < players; i++) {
+            Space space = board.getPlayer(i).getSpace();
+            cells[i] = space != null ? board.getIndex(space) : -1;
+        }
+        if (graph.resolve(cells) == 0) {
+            return;
+        }
+        // first remove all moved players from their spaces, so that a
+        // player never is put on a space that is still occupied
+        for (int i = 0; i < players; i++) {
+            Player player = board.getPlayer(i);
+            Space space = player.getSpace();
+            if (space != null && board.getIndex(space) != cells[i]) {
+                player.setSpace(null);
+            }
+        }
+        for (int i = 0; i < players; i++) {
+            if (cells[i] >= 0) {
+                board.getPlayer(i).setSpace(board.getSpace(cells[i]));
+            }
+        }
+    }
+
+    private void recordPlayers() {
+        int players = board.getPlayersNumber();
+        if (spacesBefore.length != players) {
+            spacesBefore = new Space[players];
+            checkpointsBefore = new int[players];
+        }
+        for (int i = 0; i < players; i++) {
+            Player player = board.getPlayer(i);
+            spacesBefore[i] = player.getSpace();
+            checkpointsBefore[i] = player.getCurrentCheckpoint();
+        }
+    }
+
+    private void journalFieldActions() {
+        for (int i = 0; i < board.getPlayersNumber(); i++) {
+            Player player = board.getPlayer(i);
+            Space space = player.getSpace();
+            if (space != spacesBefore[i] && space != null) {
+                journal.move(i, space.x, space.y);
+            }
+            if (player.getCurrentCheckpoint() != checkpointsBefore[i]) {
+                journal.checkpoint(i, player.getCurrentCheckpoint());
+            }
+            spacesBefore[i] = null;
+        }
+        if (board.getPhase() == Phase.FINISHED && board.getWinner() != null) {
+            journal.winner(board.getPlayerNumber(board.getWinner()));
         }
     }
 
@@ -295,8 +582,11 @@ public class GameController {
      * @see #moveBackward(Player) 
      * @see #uTurn(Player) 
      */
-    private void executeCommand(@NotNull Player player, Command command) {
+    public void executeCommand(@NotNull Player player, Command command) {
         if (player != null && player.board == board && command != null) {
+            if (journal != null) {
+                journal.command(board.getPlayerNumber(player), command);
+            }
             // XXX This is a very simplistic way of dealing with some basic cards and
             //     their execution. This should eventually be done in a more elegant way
             //     (this concerns the way cards are modelled as well as the way they are executed).
@@ -335,32 +625,57 @@ public class GameController {
      */
     public void moveForward(@NotNull Player player) {
         Space newSpace = board.getNeighbour(player.getSpace(),player.getHeading());
-        try {
-            moveToSpace(player, newSpace, player.getHeading());
-        } catch (ImpossibleMoveException e) {
-            // when pushing not possible due to wall
-            System.out.println(e.getMessage() + e.player + "to move fwd");
-        }
-
+        moveToSpace(player, newSpace, player.getHeading());
     }
 
     /**
-     * Moves the player to the specified space.
+     * Moves the player to the specified space, pushing the players on the way in the given
+     * heading. The chain of pushed players is first collected and checked for walls in a
+     * single pass; only if the whole chain can move, all players are moved. If the move is
+     * not possible, no player is moved at all.
      *
      * @param player The player to move. Must not be {@code null}.
-     * @param space  The space to move the player to. Must not be {@code null}.
+     * @param space  The space to move the player to; null if there is a wall in the way.
+     * @param heading The direction of the move (and of pushing other players).
+     * @return true if the player was moved, false if the move was blocked
      * @see Player
      * @see Space
      */
-    public void moveToSpace(@NotNull Player player, Space space, Heading heading) throws ImpossibleMoveException{
-        if (space == null) {return;}    //for walls
-        if (space.getPlayer() != null) {
-            Space newSpace  = board.getNeighbour(space, heading);
-            if (newSpace != null) {
-                moveToSpace(space.getPlayer(), newSpace, heading);
-            } else { throw new ImpossibleMoveException("Invalid move by: ",player); }
+    public boolean moveToSpace(@NotNull Player player, Space space, @NotNull Heading heading) {
+        if (space == null) {
+            // for walls
+            return false;
+        }
+        int length = 0;
+        Space target = space;
+        while (target.getPlayer() != null) {
+            Player pushed = target.getPlayer();
+            if (pushed == player) {
+                // the chain of pushed players wrapped around the board
+                return false;
+            }
+            Space next = board.getNeighbour(target, heading);
+            if (next == null) {
+                // pushing is not possible due to a wall
+                return false;
+            }
+            if (length == pushedPlayers.length) {
+                pushedPlayers = Arrays.copyOf(pushedPlayers, length + 4);
+                pushedTargets = Arrays.copyOf(pushedTargets, length + 4);
+            }
+            pushedPlayers[length] = pushed;
+            pushedTargets[length] = next;
+            length++;
+            target = next;
+        }
+        // move the pushed players, starting with the last one in the chain
+        for (int i = length - 1; i >= 0; i--) {
+            pushedPlayers[i].setSpace(pushedTargets[i]);
+            pushedPlayers[i] = null;
+            pushedTargets[i] = null;
         }
         player.setSpace(space);
+        return true;
     }
     /**
      * Moves the player forward two spaces in their current heading, if no walls block the movement.
@@ -399,12 +714,7 @@ public class GameController {
      */
     public void moveBackward(@NotNull Player player) {
         Space newSpace = board.getNeighbour(player.getSpace(),player.getHeading().next().next());
-        try {
-            moveToSpace(player, newSpace, player.getHeading().next().next());
-        } catch (ImpossibleMoveException e) {
-            // when pushing not possible due to wall
-            System.out.println(e.getMessage() + e.player + "during bwd movement");
-        }
+        moveToSpace(player, newSpace, player.getHeading().next().next());
     }
     /**
      * Rotates the player 180 degrees, effectively reversing their heading.
@@ -416,15 +726,26 @@ public class GameController {
         player.setHeading(player.getHeading().next().next());
     }
 
-    public void l_button(@NotNull Player player) {
-        turnLeft(player);
+    /**
+     * Executes the option chosen by the player for the current interactive command
+     * card, and marks the interaction as done; the execution of the programs can then
+     * continue with {@link #executeNextStep()}.
+     *
+     * @param player the player who made the choice
+     * @param option the chosen option ({@link Command#LEFT} or {@link Command#RIGHT})
+     */
+    public void executeOption(@NotNull Player player, @NotNull Command option) {
+        executeCommand(player, option);
         board.setPhase(Phase.INTERACTED);
+    }
+
+    public void l_button(@NotNull Player player) {
+        executeOption(player, Command.LEFT);
         continuePrograms();
     }
 
     public void r_button(@NotNull Player player) {
-        turnRight(player);
-        board.setPhase(Phase.INTERACTED);
+        executeOption(player, Command.RIGHT);
         continuePrograms();
     }
 
@@ -447,27 +768,6 @@ public class GameController {
 //            return false;
 //        }
 //    }
-    /**
-     * A custom exception class for handling invalid player movements. This exception is thrown
-     * when a player attempts to move to a space that is blocked by a wall or another player.
-     */
-    public static class ImpossibleMoveException extends ReflectiveOperationException {
-
-        final public Player player;
-
-        public ImpossibleMoveException(String message, Player player) {
-            super(message);
-            this.player = player;
-        }
-    }
-
-    private void showGameOver(){
-        Alert alert = new Alert(Alert.AlertType.INFORMATION, "Game Over! Thanks for playing.");
-        alert.setTitle("End Screen");
-        alert.setHeaderText(board.getWinner().getColor().toUpperCase() + " Player wins");
-        alert.show();
-    }
-
     /**
      * A method called when no corresponding controller operation is implemented yet.
      * This should eventually be removed.
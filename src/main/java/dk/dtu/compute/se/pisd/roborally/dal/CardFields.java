@@ -0,0 +1,102 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.dal;
+
+import dk.dtu.compute.se.pisd.roborally.model.Command;
+import dk.dtu.compute.se.pisd.roborally.model.CommandCard;
+import dk.dtu.compute.se.pisd.roborally.model.CommandCardField;
+import dk.dtu.compute.se.pisd.roborally.model.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Packs the program fields and the card fields of a player into a single
+ * <code>long</code>, so that they are stored in one column of the row of the
+ * player in the database. Each field takes 4 bits: the lower 3 bits are the
+ * ordinal of the command of its card plus one (0 for an empty field), and
+ * the upper bit is set if the field is visible. The {@link Player#NO_REGISTERS}
+ * program fields come first (from the lowest bits), followed by the
+ * {@link Player#NO_CARDS} card fields; so all fields of a player take 52 bits.
+ *
+ */
+class CardFields {
+
+	private static final int BITS = 4;
+
+	private static final int COMMAND_MASK = 0x7;
+
+	private static final int VISIBLE = 0x8;
+
+	static {
+		assert Command.values().length <= COMMAND_MASK;
+		assert (Player.NO_REGISTERS + Player.NO_CARDS) * BITS <= Long.SIZE;
+	}
+
+	private CardFields() {
+	}
+
+	/**
+	 * Packs the program and card fields of the given player.
+	 *
+	 * @param player the player
+	 * @return the packed fields
+	 */
+	static long encode(@NotNull Player player) {
+		long result = 0;
+		for (int i = 0; i < Player.NO_REGISTERS; i++) {
+			result |= (long) encode(player.getProgramField(i)) << (BITS * i);
+		}
+		for (int i = 0; i < Player.NO_CARDS; i++) {
+			result |= (long) encode(player.getCardField(i)) << (BITS * (Player.NO_REGISTERS + i));
+		}
+		return result;
+	}
+
+	private static int encode(CommandCardField field) {
+		CommandCard card = field.getCard();
+		int bits = card != null ? card.command.ordinal() + 1 : 0;
+		return field.isVisible() ? bits | VISIBLE : bits;
+	}
+
+	/**
+	 * Sets the program and card fields of the given player to the given
+	 * packed fields (see {@link #encode(Player)}).
+	 *
+	 * @param cards the packed fields
+	 * @param player the player
+	 */
+	static void decode(long cards, @NotNull Player player) {
+		for (int i = 0; i < Player.NO_REGISTERS; i++) {
+			decode((int) (cards >>> (BITS * i)), player.getProgramField(i));
+		}
+		for (int i = 0; i < Player.NO_CARDS; i++) {
+			decode((int) (cards >>> (BITS * (Player.NO_REGISTERS + i))), player.getCardField(i));
+		}
+	}
+
+	private static void decode(int bits, CommandCardField field) {
+		int command = bits & COMMAND_MASK;
+		field.setCard(command > 0 && command <= Command.values().length ?
+				CommandCard.valueOf(Command.values()[command - 1]) : null);
+		field.setVisible((bits & VISIBLE) != 0);
+	}
+
+}
@@ -0,0 +1,226 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.dal;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded pool of connections to the database. At most a fixed number of
+ * connections is in use at the same time; connections which are released are
+ * kept for reuse, together with their prepared statements (see
+ * {@link PooledConnection}).<p></p>
+ *
+ * The connections are not validated when they are acquired. Instead, a
+ * heartbeat in the background validates the idle connections periodically,
+ * closes the ones which are broken or were not used for a while, and
+ * records whether the database can be reached (see {@link #isAlive()}).
+ * The heartbeat takes only the connection it is validating out of the pool,
+ * so the other idle connections can still be acquired meanwhile.
+ * So, saving and loading games never waits for a validation round trip;
+ * and since the schema of the database is created by the {@link Connector}
+ * only once, new connections are opened without creating it again.
+ *
+ */
+class ConnectionPool {
+
+	static final int DEFAULT_MAX_SIZE = 4;
+
+	private static final long HEARTBEAT_PERIOD = 10;
+
+	private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(2);
+
+	private static final long ACQUIRE_TIMEOUT = 30;
+
+	private static final int VALIDATION_TIMEOUT = 5;
+
+	private final Connector connector;
+
+	private final int maxSize;
+
+	private final Semaphore permits;
+
+	// the idle connections, the most recently used first; guarded by this
+	private final Deque<PooledConnection> idle = new ArrayDeque<>();
+
+	private volatile boolean alive = true;
+
+	private final ScheduledExecutorService heartbeat;
+
+	ConnectionPool(Connector connector) {
+		this(connector, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Creates a pool of connections opened by the given connector. The first
+	 * connection of the connector is the first connection in the pool.
+	 *
+	 * @param connector the connector
+	 * @param maxSize the maximum number of connections in use at the same time
+	 */
+	ConnectionPool(Connector connector, int maxSize) {
+		this.connector = connector;
+		this.maxSize = maxSize;
+		this.permits = new Semaphore(maxSize, true);
+		if (connector.getConnection() != null) {
+			idle.add(new PooledConnection(connector.getConnection()));
+		}
+		heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "RoboRally DB heartbeat");
+			thread.setDaemon(true);
+			return thread;
+		});
+		heartbeat.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_PERIOD, HEARTBEAT_PERIOD, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Acquires a connection from this pool, which must be released again
+	 * by {@link #release(PooledConnection)}. If there is no idle connection,
+	 * a new one is opened; if the maximum number of connections is in use,
+	 * this waits until one is released.
+	 *
+	 * @return the connection
+	 * @throws SQLException if no connection could be obtained
+	 */
+	PooledConnection acquire() throws SQLException {
+		try {
+			if (!permits.tryAcquire(ACQUIRE_TIMEOUT, TimeUnit.SECONDS)) {
+				throw new SQLTimeoutException("No database connection available!");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection!", e);
+		}
+
+		PooledConnection connection;
+		synchronized (this) {
+			connection = idle.pollFirst();
+		}
+		if (connection == null) {
+			try {
+				connection = new PooledConnection(connector.connect());
+				alive = true;
+			} catch (SQLException e) {
+				alive = false;
+				permits.release();
+				throw e;
+			}
+		}
+		return connection;
+	}
+
+	/**
+	 * Returns a connection obtained by {@link #acquire()} to this pool. If
+	 * the connection was marked as broken, it is closed.
+	 *
+	 * @param connection the connection
+	 */
+	void release(PooledConnection connection) {
+		try {
+			if (connection.isBroken()) {
+				connection.close();
+			} else {
+				connection.touch();
+				synchronized (this) {
+					idle.addFirst(connection);
+				}
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Returns whether the database could be reached the last time this was
+	 * checked. This does not access the database; the result is updated
+	 * by the heartbeat of the pool, and whenever a connection is opened.
+	 *
+	 * @return true if the database is alive
+	 */
+	boolean isAlive() {
+		return alive;
+	}
+
+	private void heartbeat() {
+		List<PooledConnection> checked;
+		synchronized (this) {
+			checked = new ArrayList<>(idle);
+		}
+		long now = System.currentTimeMillis();
+		int examined = 0;
+		boolean reached = false;
+		// the connections are checked from the least recently used one; each
+		// is taken out of the pool only while it is validated, so that the
+		// others can still be acquired in the meantime
+		for (int i = checked.size() - 1; i >= 0; i--) {
+			PooledConnection connection = checked.get(i);
+			boolean expired;
+			synchronized (this) {
+				if (!idle.remove(connection)) {
+					// acquired in the meantime
+					continue;
+				}
+				// the most recently used connection is kept even when idle for long
+				expired = now - connection.getLastUsed() > IDLE_TIMEOUT && !idle.isEmpty();
+			}
+			examined++;
+			if (!expired && connection.validate(VALIDATION_TIMEOUT)) {
+				reached = true;
+				synchronized (this) {
+					idle.addLast(connection);
+				}
+			} else {
+				connection.close();
+			}
+		}
+
+		// if all connections are in use, there is nothing to check (unless
+		// the database could not be reached before)
+		if (examined > 0 || !alive) {
+			if (!reached) {
+				try {
+					PooledConnection connection = new PooledConnection(connector.connect());
+					reached = true;
+					synchronized (this) {
+						if (idle.size() < maxSize) {
+							idle.addLast(connection);
+							connection = null;
+						}
+					}
+					if (connection != null) {
+						connection.close();
+					}
+				} catch (SQLException e) {}
+			}
+			alive = reached;
+		}
+	}
+
+}
@@ -56,6 +56,8 @@ class Connector {
 
     private static final String DELIMITER = ";;";
     
+    private final String url;
+
     private Connection connection;
         
     Connector() {
@@ -86,8 +88,11 @@ class Connector {
 
         try {
 			// String url = "jdbc:mysql://" + HOST + ":" + PORT + "/" + DATABASE;
-			String url = "jdbc:mysql://" + HOST + ":" + PORT + "/" + DATABASE + "?serverTimezone=UTC";
-			connection = DriverManager.getConnection(url, USERNAME, PASSWORD);
+			// rewriteBatchedStatements makes the driver send a batch of inserts
+			// as one multi-row INSERT statement (one round trip)
+			url = "jdbc:mysql://" + HOST + ":" + PORT + "/" + DATABASE +
+					"?serverTimezone=UTC&rewriteBatchedStatements=true";
+			connection = connect();
 
 			createDatabaseSchema();
 		} catch (SQLException e) {
@@ -128,8 +133,25 @@ class Connector {
 		}
     }
     
+    /**
+     * Returns the connection which was opened when this connector was created
+     * (and for which the database schema was created).
+     *
+     * @return the first connection of this connector
+     */
     Connection getConnection() {
     	return connection; 
     }
+
+    /**
+     * Opens a new connection to the database. Other than creating a new
+     * connector, this does not create the database schema again.
+     *
+     * @return the new connection
+     * @throws SQLException if the connection could not be opened
+     */
+    Connection connect() throws SQLException {
+    	return DriverManager.getConnection(url, USERNAME, PASSWORD);
+    }
     
 }
@@ -0,0 +1,207 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.dal;
+
+import dk.dtu.compute.se.pisd.roborally.model.Board;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Saves games to the database in the background (write behind), so that
+ * the thread playing the game (in particular the JavaFX application thread)
+ * never waits for the database.<p></p>
+ *
+ * A save request takes a record of the state of the game and its changes
+ * (see {@link GameRecord}) on the calling thread, and queues it. The records
+ * are written one after the other on a dedicated thread. Repeated requests
+ * for the same game, which are still waiting in the queue, are coalesced into
+ * one record with the latest state and all changes; so many saves in quick
+ * succession (e.g. after every register) result in one transaction only.
+ * The result of a save is reported by a {@link CompletableFuture}. If a
+ * save fails, its changes are kept and written with the next save of
+ * the game. While the database cannot be reached (see
+ * {@link ConnectionPool#isAlive()}), saves fail right away instead of
+ * waiting for a connection.<p></p>
+ *
+ * The persister never changes a game: the id of a game that was created in
+ * the database is handed back by the future (and set on the game by the
+ * next save), so that the caller can set it on the thread playing the game.
+ *
+ */
+public class GamePersister {
+
+	private final Supplier<Repository> repository;
+
+	private final ExecutorService executor;
+
+	// the saves waiting to be written, by their game; guarded by this
+	private final Map<Board, PendingSave> pending = new LinkedHashMap<>();
+
+	// the records of the saves which failed, by their game; guarded by this
+	private final Map<Board, GameRecord> failed = new WeakHashMap<>();
+
+	// the ids of the games created in the database, by their game; guarded by this
+	private final Map<Board, Integer> created = new WeakHashMap<>();
+
+	private static class PendingSave {
+
+		GameRecord record;
+
+		final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+		PendingSave(GameRecord record) {
+			this.record = record;
+		}
+
+	}
+
+	/**
+	 * Creates a persister writing to the given repository. The repository
+	 * is obtained when the first save is written (on the thread of the
+	 * persister).
+	 *
+	 * @param repository the supplier of the repository
+	 */
+	GamePersister(Supplier<Repository> repository) {
+		this.repository = repository;
+		this.executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "RoboRally DB writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Requests the given game to be saved. The game is created in the database,
+	 * if it does not have a game id yet; otherwise, only its changes since the
+	 * last save are written (see {@link Board#getChanges()}). This method must
+	 * be called on the thread which plays the game; it does not wait for the
+	 * database.
+	 *
+	 * @param game the game
+	 * @return the result of the save: the id of the game in the database,
+	 *         or null if the game could not be saved
+	 */
+	public CompletableFuture<Integer> save(@NotNull Board game) {
+		synchronized (this) {
+			Integer gameId = created.get(game);
+			if (gameId != null && game.getGameId() == null) {
+				game.setGameId(gameId);
+			}
+		}
+		GameRecord record = new GameRecord(game);
+		// the changes are taken over by the record, so that changes made while
+		// the record is written are saved with the next record
+		game.clearChanges();
+		synchronized (this) {
+			GameRecord previous = failed.remove(game);
+			if (previous != null) {
+				record = previous.merge(record);
+			}
+			PendingSave save = pending.get(game);
+			if (save != null) {
+				save.record = save.record.merge(record);
+				return save.result;
+			}
+			save = new PendingSave(record);
+			pending.put(game, save);
+			executor.execute(() -> write(game));
+			return save.result;
+		}
+	}
+
+	/**
+	 * Returns a future which completes, when all saves requested so far
+	 * are written (successfully or not).
+	 *
+	 * @return the future of all requested saves
+	 */
+	public CompletableFuture<Void> flush() {
+		List<CompletableFuture<?>> results = new ArrayList<>();
+		synchronized (this) {
+			for (PendingSave save : pending.values()) {
+				results.add(save.result);
+			}
+		}
+		// saves being written right now are not pending anymore, but they
+		// were queued before this task; so this task completes after them
+		results.add(CompletableFuture.runAsync(() -> {}, executor));
+		return CompletableFuture.allOf(results.toArray(CompletableFuture<?>[]::new));
+	}
+
+	// the game is used as the key of the maps only; it is not accessed
+	// on the thread of the persister
+	private void write(Board game) {
+		PendingSave save;
+		GameRecord record;
+		synchronized (this) {
+			save = pending.remove(game);
+			record = save.record;
+			if (record.gameId == null) {
+				// an earlier save of the game might have created it meanwhile
+				record.gameId = created.get(game);
+			}
+		}
+		try {
+			Repository repository = this.repository.get();
+			if (!repository.isAlive()) {
+				keepFailed(game, record);
+				save.result.completeExceptionally(new SQLException("The database cannot be reached!"));
+				return;
+			}
+			boolean result;
+			if (record.gameId == null) {
+				result = repository.createGameInDB(record);
+				if (result) {
+					synchronized (this) {
+						created.put(game, record.gameId);
+					}
+				}
+			} else {
+				result = repository.updateGameInDB(record);
+			}
+			if (!result) {
+				keepFailed(game, record);
+			}
+			save.result.complete(result ? record.gameId : null);
+		} catch (RuntimeException e) {
+			keepFailed(game, record);
+			save.result.completeExceptionally(e);
+		}
+	}
+
+	private synchronized void keepFailed(Board game, GameRecord record) {
+		GameRecord previous = failed.remove(game);
+		failed.put(game, previous != null ? previous.merge(record) : record);
+	}
+
+}
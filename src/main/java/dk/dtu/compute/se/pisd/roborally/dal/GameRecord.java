@@ -0,0 +1,146 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.dal;
+
+import dk.dtu.compute.se.pisd.roborally.model.Board;
+import dk.dtu.compute.se.pisd.roborally.model.Player;
+import dk.dtu.compute.se.pisd.roborally.model.Space;
+
+/**
+ * The state of a game as it is written to the database, together with the
+ * changes since the game was saved last (see {@link Board#getChanges()}).
+ * A record is taken on the thread that plays the game, and can then be
+ * written to the database on any other thread (see {@link GamePersister}),
+ * without accessing the board while the game goes on.
+ *
+ */
+class GameRecord {
+
+	Integer gameId;
+
+	final int changes;
+
+	final int currentPlayer;
+
+	final int phase;
+
+	final int step;
+
+	final PlayerRecord[] players;
+
+	/**
+	 * The state of a player as it is written to the database.
+	 */
+	static class PlayerRecord {
+
+		final int number;
+
+		final String name;
+
+		final String colour;
+
+		final int x;
+
+		final int y;
+
+		final int heading;
+
+		// the program and card fields (see CardFields)
+		final long cards;
+
+		final int changes;
+
+		PlayerRecord(Player player, int number, int changes) {
+			this.number = number;
+			this.name = player.getName();
+			this.colour = player.getColor();
+			Space space = player.getSpace();
+			this.x = space != null ? space.x : 0;
+			this.y = space != null ? space.y : 0;
+			this.heading = player.getHeading().ordinal();
+			this.cards = CardFields.encode(player);
+			this.changes = changes;
+		}
+
+		private PlayerRecord(PlayerRecord record, int changes) {
+			this.number = record.number;
+			this.name = record.name;
+			this.colour = record.colour;
+			this.x = record.x;
+			this.y = record.y;
+			this.heading = record.heading;
+			this.cards = record.cards;
+			this.changes = changes;
+		}
+
+	}
+
+	/**
+	 * Takes a record of the current state of the given game.
+	 *
+	 * @param game the game
+	 */
+	GameRecord(Board game) {
+		this.gameId = game.getGameId();
+		this.changes = game.getChanges();
+		this.currentPlayer = game.getCurrentPlayerNumber();
+		this.phase = game.getPhase().ordinal();
+		this.step = game.getStep();
+		this.players = new PlayerRecord[game.getPlayersNumber()];
+		for (int i = 0; i < players.length; i++) {
+			Player player = game.getPlayer(i);
+			players[i] = new PlayerRecord(player, i, player.getChanges());
+		}
+	}
+
+	private GameRecord(GameRecord record, int changes, PlayerRecord[] players) {
+		this.gameId = record.gameId;
+		this.changes = changes;
+		this.currentPlayer = record.currentPlayer;
+		this.phase = record.phase;
+		this.step = record.step;
+		this.players = players;
+	}
+
+	/**
+	 * Returns a record with the state of the given newer record of the same
+	 * game, and the changes of both records; so writing the result has the
+	 * same effect as writing this record and then the newer one.
+	 *
+	 * @param newer the newer record of the same game
+	 * @return the merged record
+	 */
+	GameRecord merge(GameRecord newer) {
+		PlayerRecord[] merged = new PlayerRecord[newer.players.length];
+		for (int i = 0; i < merged.length; i++) {
+			PlayerRecord player = newer.players[i];
+			int changes = i < players.length ? players[i].changes | player.changes : player.changes;
+			merged[i] = new PlayerRecord(player, changes);
+		}
+		GameRecord result = new GameRecord(newer, changes | newer.changes, merged);
+		if (result.gameId == null) {
+			result.gameId = gameId;
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,161 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A connection of the {@link ConnectionPool} together with the prepared
+ * statements which were created for it. The statements are prepared once
+ * per connection and reused each time the connection is acquired again.
+ * A pooled connection is used by one thread at a time only (between
+ * {@link ConnectionPool#acquire()} and {@link ConnectionPool#release(PooledConnection)}).
+ *
+ */
+class PooledConnection {
+
+	private final Connection connection;
+
+	private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+	private volatile long lastUsed = System.currentTimeMillis();
+
+	private volatile boolean broken = false;
+
+	PooledConnection(Connection connection) {
+		this.connection = connection;
+	}
+
+	Connection getConnection() {
+		return connection;
+	}
+
+	/**
+	 * Returns the prepared statement for the given SQL on this connection,
+	 * which is created only the first time it is requested.
+	 *
+	 * @param sql the SQL of the statement
+	 * @return the prepared statement
+	 * @throws SQLException if the statement could not be prepared
+	 */
+	PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement statement = statements.get(sql);
+		if (statement == null) {
+			statement = connection.prepareStatement(sql);
+			statements.put(sql, statement);
+		}
+		return statement;
+	}
+
+	/**
+	 * Returns the prepared statement for the given SQL on this connection,
+	 * which returns the keys generated by the database.
+	 *
+	 * @param sql the SQL of the statement
+	 * @param autoGeneratedKeys whether generated keys should be returned
+	 *        (see {@link java.sql.Statement#RETURN_GENERATED_KEYS})
+	 * @return the prepared statement
+	 * @throws SQLException if the statement could not be prepared
+	 */
+	PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+		String key = "K" + autoGeneratedKeys + ":" + sql;
+		PreparedStatement statement = statements.get(key);
+		if (statement == null) {
+			statement = connection.prepareStatement(sql, autoGeneratedKeys);
+			statements.put(key, statement);
+		}
+		return statement;
+	}
+
+	/**
+	 * Returns the prepared statement for the given SQL on this connection,
+	 * whose result sets are updatable.
+	 *
+	 * @param sql the SQL of the statement
+	 * @return the prepared statement
+	 * @throws SQLException if the statement could not be prepared
+	 */
+	PreparedStatement prepareUpdatable(String sql) throws SQLException {
+		String key = "U:" + sql;
+		PreparedStatement statement = statements.get(key);
+		if (statement == null) {
+			statement = connection.prepareStatement(sql,
+					ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_UPDATABLE);
+			statements.put(key, statement);
+		}
+		return statement;
+	}
+
+	/**
+	 * Marks this connection as broken, so that it is closed instead of
+	 * being reused when it is released to the pool.
+	 */
+	void invalidate() {
+		broken = true;
+	}
+
+	boolean isBroken() {
+		return broken;
+	}
+
+	long getLastUsed() {
+		return lastUsed;
+	}
+
+	void touch() {
+		lastUsed = System.currentTimeMillis();
+	}
+
+	/**
+	 * Checks whether the connection still works, which takes a round trip
+	 * to the database.
+	 *
+	 * @param timeout the timeout in seconds
+	 * @return true if the connection is valid
+	 */
+	boolean validate(int timeout) {
+		try {
+			return !broken && connection.isValid(timeout);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	void close() {
+		for (PreparedStatement statement : statements.values()) {
+			try {
+				statement.close();
+			} catch (SQLException e) {}
+		}
+		statements.clear();
+		try {
+			connection.close();
+		} catch (SQLException e) {}
+	}
+
+}
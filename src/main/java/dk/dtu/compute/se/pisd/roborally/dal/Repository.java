@@ -29,7 +29,6 @@ import dk.dtu.compute.se.pisd.roborally.model.Player;
 
 import java.sql.*;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -65,148 +64,170 @@ class Repository implements IRepository {
 
 	private static final String PLAYER_HEADING = "heading";
 
-	private Connector connector;
+	private static final String PLAYER_CARDS = "cards";
+
+	// the changes of a player which need its row to be written
+	private static final int PLAYER_CHANGES = Player.CHANGED_SPACE | Player.CHANGED_HEADING |
+			Player.CHANGED_PROGRAM | Player.CHANGED_CARDS;
+
+	private final ConnectionPool pool;
 	
-	Repository(Connector connector){
-		this.connector = connector;
+	Repository(ConnectionPool pool){
+		this.pool = pool;
 	}
 
+	/**
+	 * Returns whether the database was reachable when it was checked last
+	 * (see {@link ConnectionPool#isAlive()}); this does not access the
+	 * database.
+	 *
+	 * @return true if the database is alive
+	 */
 	boolean isAlive() {
-		boolean result;
-        try {
-            result = connector.getConnection().isValid(5);
-        } catch (Exception e) {
-			result = false;
-        }
-		if (!result) {
-			List<PreparedStatement> psList = Arrays.asList(
-					select_games_stmt,
-					insert_game_stmt,
-					select_game_stmt,
-					select_players_stmt,
-					select_players_asc_stmt);
-			for (PreparedStatement ps : psList) {
-				if (ps != null) {
-					try {
-						ps.close();
-					} catch (SQLException ex) {}
-				}
-			}
-
-			Connection connection = connector.getConnection();
-			if (connection != null) {
-				try {
-					connection.close();
-				} catch (SQLException ex) {}
-			}
-		}
-
-		return result;
-    }
+		return pool.isAlive();
+	}
 
 	@Override
 	public boolean createGameInDB(Board game) {
 		if (game.getGameId() == null) {
-			Connection connection = connector.getConnection();
-			try {
-				connection.setAutoCommit(false);
-
-				PreparedStatement ps = getInsertGameStatementRGK();
-				// TODO: the name should eventually be set by the user
-				//       for the game and should be then obtained by
-				//       game.getName();
-				ps.setString(1, "Date: " +  new Date()); // instead of name
-				ps.setNull(2, Types.TINYINT); // game.getPlayerNumber(game.getCurrentPlayer())); is inserted after players!
-				ps.setInt(3, game.getPhase().ordinal());
-				ps.setInt(4, game.getStep());
-
-				// If you have a foreign key constraint for current players,
-				// the check would need to be temporarily disabled, since
-				// MySQL does not have a per transaction validation, but
-				// validates on a per row basis.
-				// Statement statement = connection.createStatement();
-				// statement.execute("SET foreign_key_checks = 0");
-				
-				int affectedRows = ps.executeUpdate();
-				ResultSet generatedKeys = ps.getGeneratedKeys();
-				if (affectedRows == 1 && generatedKeys.next()) {
-					game.setGameId(generatedKeys.getInt(1));
-				}
-				generatedKeys.close();
-				
-				// Enable foreign key constraint check again:
-				// statement.execute("SET foreign_key_checks = 1");
-				// statement.close();
-
-				createPlayersInDB(game);
-				/* TODO V4a: this method needs to be implemented first
-				createCardFieldsInDB(game);
-				 */
-
-				// since current player is a foreign key, it can only be
-				// inserted after the players are created, since MySQL does
-				// not have a per transaction validation, but validates on
-				// a per row basis.
-				ps = getSelectGameStatementU();
-				ps.setInt(1, game.getGameId());
-
-				ResultSet rs = ps.executeQuery();
-				if (rs.next()) {
-					rs.updateInt(GAME_CURRENTPLAYER, game.getPlayerNumber(game.getCurrentPlayer()));
-					rs.updateRow();
-				} else {
-					// TODO error handling
-				}
-				rs.close();
-
-				connection.commit();
-				connection.setAutoCommit(true);
+			GameRecord record = new GameRecord(game);
+			if (createGameInDB(record)) {
+				game.setGameId(record.gameId);
+				game.clearChanges();
 				return true;
-			} catch (SQLException e) {
-				// TODO error handling
-				e.printStackTrace();
-				System.err.println("Some DB error");
-				
-				try {
-					connection.rollback();
-					connection.setAutoCommit(true);
-				} catch (SQLException e1) {
-					// TODO error handling
-					e1.printStackTrace();
-				}
 			}
 		} else {
 			System.err.println("Game cannot be created in DB, since it has a game id already!");
 		}
 		return false;
 	}
+
+	/**
+	 * Creates the game of the given record in the database, and sets the
+	 * game id of the record. The game itself is not accessed.
+	 *
+	 * @param record the record of the game
+	 * @return true if the game was created
+	 */
+	boolean createGameInDB(GameRecord record) {
+		PooledConnection pooled = null;
+		try {
+			pooled = pool.acquire();
+			Connection connection = pooled.getConnection();
+			connection.setAutoCommit(false);
+
+			PreparedStatement ps = getInsertGameStatementRGK(pooled);
+			// TODO: the name should eventually be set by the user
+			//       for the game and should be then obtained by
+			//       game.getName();
+			ps.setString(1, "Date: " +  new Date()); // instead of name
+			ps.setNull(2, Types.TINYINT); // game.getPlayerNumber(game.getCurrentPlayer())); is inserted after players!
+			ps.setInt(3, record.phase);
+			ps.setInt(4, record.step);
+
+			// If you have a foreign key constraint for current players,
+			// the check would need to be temporarily disabled, since
+			// MySQL does not have a per transaction validation, but
+			// validates on a per row basis.
+			// Statement statement = connection.createStatement();
+			// statement.execute("SET foreign_key_checks = 0");
+			
+			int affectedRows = ps.executeUpdate();
+			ResultSet generatedKeys = ps.getGeneratedKeys();
+			Integer gameId = null;
+			if (affectedRows == 1 && generatedKeys.next()) {
+				gameId = generatedKeys.getInt(1);
+			}
+			generatedKeys.close();
+			if (gameId == null) {
+				throw new SQLException("No id was generated for the game!");
+			}
+			
+			// Enable foreign key constraint check again:
+			// statement.execute("SET foreign_key_checks = 1");
+			// statement.close();
+
+			createPlayersInDB(pooled, gameId, record);
+			// the card fields are packed into the rows of the players (see
+			// CardFields), so they were created together with the players
+
+			// since current player is a foreign key, it can only be
+			// inserted after the players are created, since MySQL does
+			// not have a per transaction validation, but validates on
+			// a per row basis.
+			updateGameColumnsInDB(pooled, gameId, record, Board.CHANGED_CURRENT_PLAYER);
+
+			connection.commit();
+			connection.setAutoCommit(true);
+			record.gameId = gameId;
+			return true;
+		} catch (SQLException e) {
+			// TODO error handling
+			e.printStackTrace();
+			System.err.println("Some DB error");
+			if (pooled != null) {
+				// a connection on which an error occurred is not reused
+				pooled.invalidate();
+				rollback(pooled);
+			}
+		} finally {
+			if (pooled != null) {
+				pool.release(pooled);
+			}
+		}
+		return false;
+	}
 		
+	/**
+	 * Saves the changes of the game since it was saved last (see
+	 * {@link Board#getChanges()}): only the columns of the game which
+	 * changed and the rows of the players which changed are written. If
+	 * nothing changed, the database is not accessed at all.
+	 */
 	@Override
 	public boolean updateGameInDB(Board game) {
 		assert game.getGameId() != null;
+
+		if (updateGameInDB(new GameRecord(game))) {
+			game.clearChanges();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Saves the changes in the given record of a game, which must have been
+	 * created in the database already (see {@link #updateGameInDB(Board)}).
+	 * The game itself is not accessed.
+	 *
+	 * @param record the record of the game
+	 * @return true if the changes were saved
+	 */
+	boolean updateGameInDB(GameRecord record) {
+		List<GameRecord.PlayerRecord> players = new ArrayList<>();
+		for (GameRecord.PlayerRecord player : record.players) {
+			if ((player.changes & PLAYER_CHANGES) != 0) {
+				players.add(player);
+			}
+		}
+		if (record.changes == 0 && players.isEmpty()) {
+			return true;
+		}
 		
-		Connection connection = connector.getConnection();
+		PooledConnection pooled = null;
 		try {
+			pooled = pool.acquire();
+			Connection connection = pooled.getConnection();
 			connection.setAutoCommit(false);
 
-			PreparedStatement ps = getSelectGameStatementU();
-			ps.setInt(1, game.getGameId());
-			
-			ResultSet rs = ps.executeQuery();
-			if (rs.next()) {
-				rs.updateInt(GAME_CURRENTPLAYER, game.getPlayerNumber(game.getCurrentPlayer()));
-				rs.updateInt(GAME_PHASE, game.getPhase().ordinal());
-				rs.updateInt(GAME_STEP, game.getStep());
-				rs.updateRow();
-			} else {
-				// TODO error handling
+			if (record.changes != 0) {
+				updateGameColumnsInDB(pooled, record.gameId, record, record.changes);
 			}
-			rs.close();
-
-			updatePlayersInDB(game);
-			/* TODO V4a: this method needs to be implemented first
-			updateCardFieldsInDB(game);
-			*/
+			if (!players.isEmpty()) {
+				updatePlayersInDB(pooled, record.gameId, players);
+			}
+			// the card fields are packed into the rows of the players, so
+			// they were updated together with the players
 
             connection.commit();
             connection.setAutoCommit(true);
@@ -215,27 +236,40 @@ class Repository implements IRepository {
 			// TODO error handling
 			e.printStackTrace();
 			System.err.println("Some DB error");
-			
-			try {
-				connection.rollback();
-				connection.setAutoCommit(true);
-			} catch (SQLException e1) {
-				// TODO error handling
-				e1.printStackTrace();
+			if (pooled != null) {
+				pooled.invalidate();
+				rollback(pooled);
+			}
+		} finally {
+			if (pooled != null) {
+				pool.release(pooled);
 			}
 		}
 
 		return false;
 	}
+
+	private void rollback(PooledConnection pooled) {
+		Connection connection = pooled.getConnection();
+		try {
+			connection.rollback();
+			connection.setAutoCommit(true);
+		} catch (SQLException e1) {
+			// TODO error handling
+			e1.printStackTrace();
+		}
+	}
 	
 	@Override
 	public Board loadGameFromDB(int id) {
 		Board game;
+		PooledConnection pooled = null;
 		try {
+			pooled = pool.acquire();
 			// XXX here, we could actually use a simpler statement
 			//     which is not updatable, but we reuse the one from
 			//     above for simplicity
-			PreparedStatement ps = getSelectGameStatementU();
+			PreparedStatement ps = getSelectGameStatementU(pooled);
 			ps.setInt(1, id);
 			
 			ResultSet rs = ps.executeQuery();
@@ -259,7 +293,7 @@ class Repository implements IRepository {
 			rs.close();
 
 			game.setGameId(id);			
-			loadPlayersFromDB(game);
+			loadPlayersFromDB(pooled, game);
 
 			if (playerNo >= 0 && playerNo < game.getPlayersNumber()) {
 				game.setCurrentPlayer(game.getPlayer(playerNo));
@@ -268,15 +302,23 @@ class Repository implements IRepository {
 				return null;
 			}
 
-			/* TODO V4a: this method needs to be implemented first
-			loadCardFieldsFromDB(game);
-			*/
+			// the card fields were loaded together with the players
+			// (see loadCardFieldsFromDB)
 
+			// the loaded game is in the state of the database
+			game.clearChanges();
 			return game;
 		} catch (SQLException e) {
 			// TODO error handling
 			e.printStackTrace();
 			System.err.println("Some DB error");
+			if (pooled != null) {
+				pooled.invalidate();
+			}
+		} finally {
+			if (pooled != null) {
+				pool.release(pooled);
+			}
 		}
 		return null;
 	}
@@ -288,8 +330,10 @@ class Repository implements IRepository {
 		//      method that can filter the returned games in order to
 		//      reduce the number of the returned games.
 		List<GameInDB> result = new ArrayList<>();
+		PooledConnection pooled = null;
 		try {
-			PreparedStatement ps = getSelectGameIdsStatement();
+			pooled = pool.acquire();
+			PreparedStatement ps = getSelectGameIdsStatement(pooled);
 			ResultSet rs = ps.executeQuery();
 			while (rs.next()) {
 				int id = rs.getInt(GAME_GAMEID);
@@ -300,34 +344,43 @@ class Repository implements IRepository {
 		} catch (SQLException e) {
 			// TODO proper error handling
 			e.printStackTrace();
+			if (pooled != null) {
+				pooled.invalidate();
+			}
+		} finally {
+			if (pooled != null) {
+				pool.release(pooled);
+			}
 		}
 		return result;		
 	}
 
-	private void createPlayersInDB(Board game) throws SQLException {
+	private void createPlayersInDB(PooledConnection pooled, int gameId, GameRecord record) throws SQLException {
 		// TODO code should be more defensive
-		PreparedStatement ps = getSelectPlayersStatementU();
-		ps.setInt(1, game.getGameId());
-		
-		ResultSet rs = ps.executeQuery();
-		for (int i = 0; i < game.getPlayersNumber(); i++) {
-			Player player = game.getPlayer(i);
-			rs.moveToInsertRow();
-			rs.updateInt(PLAYER_GAMEID, game.getGameId());
-			rs.updateInt(PLAYER_PLAYERID, i);
-			rs.updateString(PLAYER_NAME, player.getName());
-			rs.updateString(PLAYER_COLOUR, player.getColor());
-			rs.updateInt(PLAYER_POSITION_X, player.getSpace().x);
-			rs.updateInt(PLAYER_POSITION_Y, player.getSpace().y);
-			rs.updateInt(PLAYER_HEADING, player.getHeading().ordinal());
-			rs.insertRow();
+		// All players are sent as one batch, which the driver rewrites to a
+		// single multi-row INSERT (see Connector), so that this is one round
+		// trip to the database independently of the number of players.
+		PreparedStatement ps = getInsertPlayersStatement(pooled);
+		for (GameRecord.PlayerRecord player : record.players) {
+			addPlayerToBatch(ps, gameId, player);
 		}
+		ps.executeBatch();
+	}
 
-		rs.close();
+	private void addPlayerToBatch(PreparedStatement ps, int gameId, GameRecord.PlayerRecord player) throws SQLException {
+		ps.setInt(1, gameId);
+		ps.setInt(2, player.number);
+		ps.setString(3, player.name);
+		ps.setString(4, player.colour);
+		ps.setInt(5, player.x);
+		ps.setInt(6, player.y);
+		ps.setInt(7, player.heading);
+		ps.setLong(8, player.cards);
+		ps.addBatch();
 	}
 	
-	private void loadPlayersFromDB(Board game) throws SQLException {
-		PreparedStatement ps = getSelectPlayersASCStatement();
+	private void loadPlayersFromDB(PooledConnection pooled, Board game) throws SQLException {
+		PreparedStatement ps = getSelectPlayersASCStatement(pooled);
 		ps.setInt(1, game.getGameId());
 		
 		ResultSet rs = ps.executeQuery();
@@ -346,6 +399,8 @@ class Repository implements IRepository {
 				player.setSpace(game.getSpace(x,y));
 				int heading = rs.getInt(PLAYER_HEADING);
 				player.setHeading(Heading.values()[heading]);
+
+				loadCardFieldsFromDB(rs, player);
 			} else {
 				// TODO error handling
 				System.err.println("Game in DB does not have a player with id " + i +"!");
@@ -354,127 +409,108 @@ class Repository implements IRepository {
 		rs.close();
 	}
 	
-	private void updatePlayersInDB(Board game) throws SQLException {
-		PreparedStatement ps = getSelectPlayersStatementU();
-		ps.setInt(1, game.getGameId());
-		
-		ResultSet rs = ps.executeQuery();
-		while (rs.next()) {
-			int playerId = rs.getInt(PLAYER_PLAYERID);
-			// TODO should be more defensive
-			Player player = game.getPlayer(playerId);
-			// rs.updateString(PLAYER_NAME, player.getName()); // not needed: player's names does not change
-			rs.updateInt(PLAYER_POSITION_X, player.getSpace().x);
-			rs.updateInt(PLAYER_POSITION_Y, player.getSpace().y);
-			rs.updateInt(PLAYER_HEADING, player.getHeading().ordinal());
-			// TODO error handling
-			// TODO take care of case when number of players changes, etc
-			rs.updateRow();
+	private void loadCardFieldsFromDB(ResultSet rs, Player player) throws SQLException {
+		long cards = rs.getLong(PLAYER_CARDS);
+		// games saved before the cards were stored have no cards
+		if (!rs.wasNull()) {
+			CardFields.decode(cards, player);
 		}
-		rs.close();
-		
-		// TODO error handling/consistency check: check whether all players were updated
 	}
 
-	private static final String SQL_INSERT_GAME =
-			"INSERT INTO Game(name, currentPlayer, phase, step) VALUES (?, ?, ?, ?)";
+	private void updateGameColumnsInDB(PooledConnection pooled, int gameId, GameRecord record, int changes) throws SQLException {
+		// the statement contains the changed columns only; there are only a
+		// few combinations, whose statements are cached by the connection
+		StringBuilder sql = new StringBuilder("UPDATE Game SET ");
+		String separator = "";
+		if ((changes & Board.CHANGED_CURRENT_PLAYER) != 0) {
+			sql.append(GAME_CURRENTPLAYER).append(" = ?");
+			separator = ", ";
+		}
+		if ((changes & Board.CHANGED_PHASE) != 0) {
+			sql.append(separator).append(GAME_PHASE).append(" = ?");
+			separator = ", ";
+		}
+		if ((changes & Board.CHANGED_STEP) != 0) {
+			sql.append(separator).append(GAME_STEP).append(" = ?");
+		}
+		sql.append(" WHERE ").append(GAME_GAMEID).append(" = ?");
 
-	private PreparedStatement insert_game_stmt = null;
+		PreparedStatement ps = pooled.prepare(sql.toString());
+		int parameter = 1;
+		if ((changes & Board.CHANGED_CURRENT_PLAYER) != 0) {
+			ps.setInt(parameter++, record.currentPlayer);
+		}
+		if ((changes & Board.CHANGED_PHASE) != 0) {
+			ps.setInt(parameter++, record.phase);
+		}
+		if ((changes & Board.CHANGED_STEP) != 0) {
+			ps.setInt(parameter++, record.step);
+		}
+		ps.setInt(parameter, gameId);
+		ps.executeUpdate();
+	}
 
-	private PreparedStatement getInsertGameStatementRGK() {
-		if (insert_game_stmt == null) {
-			Connection connection = connector.getConnection();
-			try {
-				insert_game_stmt = connection.prepareStatement(
-						SQL_INSERT_GAME,
-						Statement.RETURN_GENERATED_KEYS);
-			} catch (SQLException e) {
-				// TODO error handling
-				e.printStackTrace();
-			}
+	private void updatePlayersInDB(PooledConnection pooled, int gameId, List<GameRecord.PlayerRecord> players) throws SQLException {
+		// The players are written by one multi-row INSERT, which updates
+		// the rows of the players that exist already (the names and
+		// colours of players do not change). This also takes care of
+		// players which were not in the database yet.
+		PreparedStatement ps = getUpdatePlayersStatement(pooled);
+		for (GameRecord.PlayerRecord player : players) {
+			addPlayerToBatch(ps, gameId, player);
 		}
-		return insert_game_stmt;
+		ps.executeBatch();
+
+		// TODO take care of the case when the number of players decreases
+	}
+
+	// The prepared statements are cached for each connection of the pool
+	// (see PooledConnection), so they are prepared only once per connection.
+
+	private static final String SQL_INSERT_GAME =
+			"INSERT INTO Game(name, currentPlayer, phase, step) VALUES (?, ?, ?, ?)";
+
+	private PreparedStatement getInsertGameStatementRGK(PooledConnection pooled) throws SQLException {
+		return pooled.prepare(SQL_INSERT_GAME, Statement.RETURN_GENERATED_KEYS);
 	}
 
 	private static final String SQL_SELECT_GAME =
 			"SELECT * FROM Game WHERE gameID = ?";
 	
-	private PreparedStatement select_game_stmt = null;
-	
-	private PreparedStatement getSelectGameStatementU() {
-		if (select_game_stmt == null) {
-			Connection connection = connector.getConnection();
-			try {
-				select_game_stmt = connection.prepareStatement(
-						SQL_SELECT_GAME,
-						ResultSet.TYPE_FORWARD_ONLY,
-					    ResultSet.CONCUR_UPDATABLE);
-			} catch (SQLException e) {
-				// TODO error handling
-				e.printStackTrace();
-			}
-		}
-		return select_game_stmt;
+	private PreparedStatement getSelectGameStatementU(PooledConnection pooled) throws SQLException {
+		return pooled.prepareUpdatable(SQL_SELECT_GAME);
 	}
 		
-	private static final String SQL_SELECT_PLAYERS =
-			"SELECT * FROM Player WHERE gameID = ?";
-
-	private PreparedStatement select_players_stmt = null;
-
-	private PreparedStatement getSelectPlayersStatementU() {
-		if (select_players_stmt == null) {
-			Connection connection = connector.getConnection();
-			try {
-				select_players_stmt = connection.prepareStatement(
-						SQL_SELECT_PLAYERS,
-						ResultSet.TYPE_FORWARD_ONLY,
-						ResultSet.CONCUR_UPDATABLE);
-			} catch (SQLException e) {
-				// TODO error handling
-				e.printStackTrace();
-			}
-		}
-		return select_players_stmt;
+	private static final String SQL_INSERT_PLAYERS =
+			"INSERT INTO Player(gameID, playerID, name, colour, positionX, positionY, heading, cards) " +
+			"VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private PreparedStatement getInsertPlayersStatement(PooledConnection pooled) throws SQLException {
+		return pooled.prepare(SQL_INSERT_PLAYERS);
+	}
+
+	private static final String SQL_UPDATE_PLAYERS =
+			SQL_INSERT_PLAYERS + " ON DUPLICATE KEY UPDATE " +
+			"positionX = VALUES(positionX), positionY = VALUES(positionY), heading = VALUES(heading), " +
+			"cards = VALUES(cards)";
+
+	private PreparedStatement getUpdatePlayersStatement(PooledConnection pooled) throws SQLException {
+		return pooled.prepare(SQL_UPDATE_PLAYERS);
 	}
 
 	private static final String SQL_SELECT_PLAYERS_ASC =
 			"SELECT * FROM Player WHERE gameID = ? ORDER BY playerID ASC";
 	
-	private PreparedStatement select_players_asc_stmt = null;
-	
-	private PreparedStatement getSelectPlayersASCStatement() {
-		if (select_players_asc_stmt == null) {
-			Connection connection = connector.getConnection();
-			try {
-				// This statement does not need to be updatable
-				select_players_asc_stmt = connection.prepareStatement(
-						SQL_SELECT_PLAYERS_ASC);
-			} catch (SQLException e) {
-				// TODO error handling
-				e.printStackTrace();
-			}
-		}
-		return select_players_asc_stmt;
+	private PreparedStatement getSelectPlayersASCStatement(PooledConnection pooled) throws SQLException {
+		// This statement does not need to be updatable
+		return pooled.prepare(SQL_SELECT_PLAYERS_ASC);
 	}
 	
 	private static final String SQL_SELECT_GAMES =
 			"SELECT gameID, name FROM Game";
 	
-	private PreparedStatement select_games_stmt = null;
-	
-	private PreparedStatement getSelectGameIdsStatement() {
-		if (select_games_stmt == null) {
-			Connection connection = connector.getConnection();
-			try {
-				select_games_stmt = connection.prepareStatement(
-						SQL_SELECT_GAMES);
-			} catch (SQLException e) {
-				// TODO error handling
-				e.printStackTrace();
-			}
-		}
-		return select_games_stmt;
+	private PreparedStatement getSelectGameIdsStatement(PooledConnection pooled) throws SQLException {
+		return pooled.prepare(SQL_SELECT_GAMES);
 	}
 
 }
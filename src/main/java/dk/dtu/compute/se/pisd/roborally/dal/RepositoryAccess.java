@@ -30,10 +30,37 @@ package dk.dtu.compute.se.pisd.roborally.dal;
 public class RepositoryAccess {
     
 	private static Repository repository;
+
+	private static GamePersister persister;
 	
-	public static IRepository getRepository() {
-		if (repository == null || !repository.isAlive()) {
-			repository = new Repository(new Connector());
+	/**
+	 * Returns the repository. The repository is created only once; it uses a
+	 * pool of connections which reconnects to the database by itself (see
+	 * {@link ConnectionPool}), so the connection is not checked here.
+	 *
+	 * @return the repository
+	 */
+	public static synchronized IRepository getRepository() {
+		return repository();
+	}
+
+	/**
+	 * Returns the persister, which saves games to the repository in the
+	 * background (see {@link GamePersister}). The repository is created
+	 * when the first game is saved.
+	 *
+	 * @return the persister
+	 */
+	public static synchronized GamePersister getPersister() {
+		if (persister == null) {
+			persister = new GamePersister(RepositoryAccess::repository);
+		}
+		return persister;
+	}
+
+	private static synchronized Repository repository() {
+		if (repository == null) {
+			repository = new Repository(new ConnectionPool(new Connector()));
 		}
 		return repository;
 	}
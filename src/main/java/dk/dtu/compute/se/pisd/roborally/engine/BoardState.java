@@ -0,0 +1,491 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.engine;
+
+import dk.dtu.compute.se.pisd.roborally.model.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A compact representation of the state of a game, which is used for simulating
+ * the movement of the robots fast. Instead of the object graph of {@link Space}s
+ * and {@link Player}s (with the notifications of their observers on every change),
+ * the state is kept in primitive arrays: the occupancy of each cell, a bitmask of
+ * the walls of each cell, and the position, heading and checkpoint of each player.
+ * Cells are numbered row by row, i.e. the cell of space (x,y) is
+ * <code>y * width + x</code>; the bits of the wall masks are indexed by the
+ * ordinal of the {@link Heading}.<p></p>
+ *
+ * The state is created from a {@link Board} and written back to the board by
+ * {@link #writeTo(Board)}, only when the model is actually needed (by a view or
+ * the repository). The commands ({@link #moveForward(int)} etc.) behave in the
+ * same way as the respective methods of the
+ * {@link dk.dtu.compute.se.pisd.roborally.controller.GameController}.
+ *
+ */
+public class BoardState {
+
+    /**
+     * The value of a cell in the occupancy array when there is no player on it.
+     */
+    public static final int EMPTY = -1;
+
+    public final int width;
+
+    public final int height;
+
+    private final byte[] walls;
+
+    private final int[] neighbours;
+
+    private final int[] occupant;
+
+    private final int[] position;
+
+    private final byte[] heading;
+
+    private final int[] checkpoint;
+
+    private final int[] chain;
+
+    // the Zobrist hash of the players' state (see Zobrist#player)
+    private long hash;
+
+    // the number of single cell moves of players on this state
+    private int moves;
+
+    /**
+     * Creates the compact state of the given board, with the current
+     * positions, headings and checkpoints of all its players.
+     *
+     * @param board the board
+     */
+    public BoardState(@NotNull Board board) {
+        this.width = board.width;
+        this.height = board.height;
+        int cells = width * height;
+        walls = new byte[cells];
+        neighbours = new int[cells * 4];
+        occupant = new int[cells];
+        Heading[] headings = Heading.values();
+        for (int cell = 0; cell < cells; cell++) {
+            walls[cell] = (byte) board.getWallMask(cell);
+            for (Heading heading: headings) {
+                neighbours[(cell << 2) + heading.ordinal()] = board.getNeighbour(cell, heading);
+            }
+        }
+
+        int players = board.getPlayersNumber();
+        position = new int[players];
+        heading = new byte[players];
+        checkpoint = new int[players];
+        chain = new int[players];
+        readFrom(board);
+    }
+
+    /**
+     * Creates a copy of the given state. The walls and neighbours of the cells,
+     * which never change, are shared with the other state; so copies can be
+     * created cheaply, e.g. one for each thread of a search.
+     *
+     * @param other the state to be copied
+     */
+    public BoardState(@NotNull BoardState other) {
+        this.width = other.width;
+        this.height = other.height;
+        this.walls = other.walls;
+        this.neighbours = other.neighbours;
+        this.occupant = other.occupant.clone();
+        this.position = other.position.clone();
+        this.heading = other.heading.clone();
+        this.checkpoint = other.checkpoint.clone();
+        this.chain = new int[other.chain.length];
+        this.hash = other.hash;
+    }
+
+    /**
+     * Creates an empty state with the cells of the given state and the given
+     * number of players, which are not on the board yet (see
+     * {@link #place(int, int, int, int)}).
+     *
+     * @param layout the state with the cells
+     * @param players the number of players
+     */
+    public BoardState(@NotNull BoardState layout, int players) {
+        this.width = layout.width;
+        this.height = layout.height;
+        this.walls = layout.walls;
+        this.neighbours = layout.neighbours;
+        this.occupant = new int[layout.occupant.length];
+        Arrays.fill(occupant, EMPTY);
+        this.position = new int[players];
+        Arrays.fill(position, EMPTY);
+        this.heading = new byte[players];
+        this.checkpoint = new int[players];
+        this.chain = new int[players];
+        rehash();
+    }
+
+    /**
+     * Puts the given player on the given cell (which must be free) with the
+     * given heading and checkpoint.
+     *
+     * @param player the number of the player
+     * @param cell the cell (or {@link #EMPTY} for removing the player from the board)
+     * @param heading the ordinal of the heading
+     * @param checkpoint the checkpoint
+     */
+    public void place(int player, int cell, int heading, int checkpoint) {
+        if (position[player] != EMPTY) {
+            occupant[position[player]] = EMPTY;
+        }
+        hash ^= Zobrist.player(player, position[player], this.heading[player], this.checkpoint[player])
+                ^ Zobrist.player(player, cell, heading, checkpoint);
+        position[player] = cell;
+        if (cell != EMPTY) {
+            occupant[cell] = player;
+        }
+        this.heading[player] = (byte) heading;
+        this.checkpoint[player] = checkpoint;
+    }
+
+    /**
+     * Returns the number of single cell moves of players that were made on this
+     * state so far (by commands, pushes and conveyor belts). Since a player moves
+     * at most one cell at a time, a player that made <i>n</i> moves has never been
+     * further away than <i>n</i> cells from where it started.
+     *
+     * @return the number of moves
+     */
+    public int getMoves() {
+        return moves;
+    }
+
+    /**
+     * Saves the positions, headings and checkpoints of the players into the
+     * given array, which must have a length of at least three times the number
+     * of players. Together with {@link #restore(int[])}, this allows undoing
+     * moves in time linear in the number of players.
+     *
+     * @param frame the array to save the state into
+     */
+    public void save(@NotNull int[] frame) {
+        int players = position.length;
+        for (int i = 0; i < players; i++) {
+            frame[i] = position[i];
+            frame[players + i] = heading[i];
+            frame[2 * players + i] = checkpoint[i];
+        }
+    }
+
+    /**
+     * Restores the positions, headings and checkpoints of the players, which
+     * were saved by {@link #save(int[])}.
+     *
+     * @param frame the array the state was saved into
+     */
+    public void restore(@NotNull int[] frame) {
+        int players = position.length;
+        for (int i = 0; i < players; i++) {
+            if (position[i] != EMPTY) {
+                occupant[position[i]] = EMPTY;
+            }
+        }
+        for (int i = 0; i < players; i++) {
+            position[i] = frame[i];
+            if (position[i] != EMPTY) {
+                occupant[position[i]] = i;
+            }
+            heading[i] = (byte) frame[players + i];
+            checkpoint[i] = frame[2 * players + i];
+        }
+        rehash();
+    }
+
+    private void rehash() {
+        long hash = 0;
+        for (int i = 0; i < position.length; i++) {
+            hash ^= Zobrist.player(i, position[i], heading[i], checkpoint[i]);
+        }
+        this.hash = hash;
+    }
+
+    /**
+     * Returns the Zobrist hash of the positions, headings and checkpoints of
+     * the players in this state, which is maintained incrementally. It is the
+     * same as the hash of a board in the same state (see
+     * {@link Board#getHash()}) without the keys of the phase and step.
+     *
+     * @return the hash of the state
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Copies the positions, headings and checkpoints of the players from the
+     * given board into this state. The board must be the one this state was
+     * created from (or have the same dimensions, walls and players).
+     *
+     * @param board the board
+     */
+    public void readFrom(@NotNull Board board) {
+        Arrays.fill(occupant, EMPTY);
+        for (int i = 0; i < position.length; i++) {
+            Player player = board.getPlayer(i);
+            Space space = player.getSpace();
+            if (space != null) {
+                position[i] = space.y * width + space.x;
+                occupant[position[i]] = i;
+            } else {
+                position[i] = EMPTY;
+            }
+            heading[i] = (byte) player.getHeading().ordinal();
+            checkpoint[i] = player.getCurrentCheckpoint();
+        }
+        rehash();
+    }
+
+    /**
+     * Writes the positions, headings and checkpoints of the players of this
+     * state back to the given board (which triggers the notifications of the
+     * observers of the changed spaces and players).
+     *
+     * @param board the board
+     */
+    public void writeTo(@NotNull Board board) {
+        Heading[] headings = Heading.values();
+        // first remove all moved players from their spaces, so that a
+        // player never is put on a space that is still occupied
+        for (int i = 0; i < position.length; i++) {
+            Player player = board.getPlayer(i);
+            Space space = player.getSpace();
+            if (space != null && space != getSpace(board, i)) {
+                player.setSpace(null);
+            }
+        }
+        for (int i = 0; i < position.length; i++) {
+            Player player = board.getPlayer(i);
+            player.setSpace(getSpace(board, i));
+            player.setHeading(headings[heading[i]]);
+            player.setCurrentCheckpoint(checkpoint[i]);
+        }
+    }
+
+    private Space getSpace(Board board, int player) {
+        int cell = position[player];
+        if (cell == EMPTY) {
+            return null;
+        }
+        return board.getSpace(cell % width, cell / width);
+    }
+
+    public int getPlayersNumber() {
+        return position.length;
+    }
+
+    public int getPosition(int player) {
+        return position[player];
+    }
+
+    public int getHeading(int player) {
+        return heading[player];
+    }
+
+    public int getCheckpoint(int player) {
+        return checkpoint[player];
+    }
+
+    public void setCheckpoint(int player, int checkpoint) {
+        hash ^= Zobrist.checkpoint(player, this.checkpoint[player]) ^ Zobrist.checkpoint(player, checkpoint);
+        this.checkpoint[player] = checkpoint;
+    }
+
+    /**
+     * Returns the number of the player on the given cell, or {@link #EMPTY}
+     * if there is no player on that cell.
+     *
+     * @param cell the cell
+     * @return the player on the cell
+     */
+    public int getOccupant(int cell) {
+        return occupant[cell];
+    }
+
+    public int getWalls(int cell) {
+        return walls[cell];
+    }
+
+    /**
+     * Returns the neighbour cell of the given cell in the given heading,
+     * wrapping around the edges of the board like
+     * {@link Board#getNeighbour(Space, Heading)}. If the neighbour cannot be
+     * reached due to a wall on either of the cells, {@link #EMPTY} is returned.
+     *
+     * @param cell the cell
+     * @param heading the ordinal of the heading
+     * @return the neighbour cell or {@link #EMPTY}
+     */
+    public int getNeighbour(int cell, int heading) {
+        return neighbours[(cell << 2) + heading];
+    }
+
+    /**
+     * Executes the given (non-interactive) command for the given player.
+     *
+     * @param player the number of the player
+     * @param command the command
+     */
+    public void executeCommand(int player, @NotNull Command command) {
+        switch (command) {
+            case FORWARD:
+                moveForward(player);
+                break;
+            case RIGHT:
+                turnRight(player);
+                break;
+            case LEFT:
+                turnLeft(player);
+                break;
+            case FAST_FORWARD:
+                fastForward(player);
+                break;
+            case BACKWARD:
+                moveBackward(player);
+                break;
+            case uTURN:
+                uTurn(player);
+                break;
+            default:
+                // DO NOTHING (for now)
+        }
+    }
+
+    public void moveForward(int player) {
+        move(player, heading[player]);
+    }
+
+    public void fastForward(int player) {
+        moveForward(player);
+        moveForward(player);
+    }
+
+    public void moveBackward(int player) {
+        move(player, (heading[player] + 2) & 3);
+    }
+
+    public void turnRight(int player) {
+        turn(player, 1);
+    }
+
+    public void turnLeft(int player) {
+        turn(player, 3);
+    }
+
+    public void uTurn(int player) {
+        turn(player, 2);
+    }
+
+    private void turn(int player, int turns) {
+        int old = heading[player];
+        heading[player] = (byte) ((old + turns) & 3);
+        hash ^= Zobrist.heading(player, old) ^ Zobrist.heading(player, heading[player]);
+    }
+
+    /**
+     * Moves all players to the given cells at once; the cells must be free or
+     * occupied by players that are moved away. This is used for the moves of
+     * conveyor belts (see {@link ConveyorGraph#resolve(int[])}), which do not
+     * push other players.
+     *
+     * @param cells the new cells of the players ({@link #EMPTY} for a player
+     *              that is not on the board)
+     */
+    public void moveAll(@NotNull int[] cells) {
+        for (int i = 0; i < position.length; i++) {
+            if (position[i] != cells[i] && position[i] != EMPTY) {
+                occupant[position[i]] = EMPTY;
+            }
+        }
+        for (int i = 0; i < position.length; i++) {
+            if (position[i] != cells[i]) {
+                hash ^= Zobrist.space(i, position[i]) ^ Zobrist.space(i, cells[i]);
+                moves++;
+                position[i] = cells[i];
+                if (cells[i] != EMPTY) {
+                    occupant[cells[i]] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the given player one cell in the given heading, pushing the players
+     * in front of it. If the move is blocked by a wall (possibly in front of one
+     * of the pushed players), no player is moved at all.
+     *
+     * @param player the number of the player
+     * @param heading the ordinal of the heading
+     * @return true if the player was moved, false otherwise
+     */
+    public boolean move(int player, int heading) {
+        int from = position[player];
+        if (from == EMPTY) {
+            return false;
+        }
+        int target = getNeighbour(from, heading);
+        if (target == EMPTY) {
+            return false;
+        }
+        // collect the chain of pushed players first
+        int length = 0;
+        int cell = target;
+        while (occupant[cell] != EMPTY) {
+            int pushed = occupant[cell];
+            if (pushed == player) {
+                // the chain wrapped around the board
+                return false;
+            }
+            cell = getNeighbour(cell, heading);
+            if (cell == EMPTY) {
+                return false;
+            }
+            chain[length++] = pushed;
+        }
+        // and move them, starting with the last one in the chain
+        for (int i = length - 1; i >= 0; i--) {
+            moveTo(chain[i], getNeighbour(position[chain[i]], heading));
+        }
+        moveTo(player, target);
+        return true;
+    }
+
+    private void moveTo(int player, int cell) {
+        hash ^= Zobrist.space(player, position[player]) ^ Zobrist.space(player, cell);
+        moves++;
+        occupant[position[player]] = EMPTY;
+        position[player] = cell;
+        occupant[cell] = player;
+    }
+
+}
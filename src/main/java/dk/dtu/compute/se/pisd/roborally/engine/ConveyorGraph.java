@@ -0,0 +1,209 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.engine;
+
+import dk.dtu.compute.se.pisd.roborally.controller.ConveyorBelt;
+import dk.dtu.compute.se.pisd.roborally.controller.FieldAction;
+import dk.dtu.compute.se.pisd.roborally.model.Board;
+import dk.dtu.compute.se.pisd.roborally.model.Space;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * The conveyor belts of a board, compiled into a flow graph: each cell with
+ * a conveyor belt has an edge to the cell the belt moves a robot to (or to
+ * itself, if a wall is in the way). The graph resolves the movement of all
+ * robots on conveyor belts in a single step: every robot on a belt is moved
+ * exactly once, independently of the order of the spaces, as follows:
+ * <ul>
+ *     <li>a robot does not move, if its belt is blocked by a wall;</li>
+ *     <li>robots whose belts lead into the same cell do not move (a merge
+ *     conflict);</li>
+ *     <li>a robot does not move into a cell that is occupied by a robot,
+ *     which does not move away (robots are not pushed by belts);</li>
+ *     <li>two robots on belts leading into each other's cell block each
+ *     other, but the robots on a cycle of three or more belts move all
+ *     together.</li>
+ * </ul>
+ * The cost of a resolution depends on the number of robots only, not on the
+ * size of the board. The positions of the robots are given by their cells
+ * (see {@link Board#getIndex(Space)}); so the graph is used by the
+ * {@link dk.dtu.compute.se.pisd.roborally.controller.GameController} as well
+ * as for simulations on a {@link BoardState}. A graph is immutable and must
+ * be compiled again when the layout of the board changes (see
+ * {@link Board#getLayoutVersion()}).
+ *
+ */
+public final class ConveyorGraph {
+
+    /**
+     * The value of the target of a cell without conveyor belt.
+     */
+    public static final int NONE = -1;
+
+    private static final int UNKNOWN = 0;
+    private static final int VISITING = 1;
+    private static final int MOVES = 2;
+    private static final int STAYS = 3;
+
+    private final int layoutVersion;
+
+    private final int[] targets;
+
+    private final int belts;
+
+    /**
+     * Compiles the conveyor belts of the given board.
+     *
+     * @param board the board
+     */
+    public ConveyorGraph(@NotNull Board board) {
+        layoutVersion = board.getLayoutVersion();
+        targets = new int[board.width * board.height];
+        Arrays.fill(targets, NONE);
+        int belts = 0;
+        for (Space space: board.getActionSpaces()) {
+            for (FieldAction action: space.getActions()) {
+                if (action instanceof ConveyorBelt && ((ConveyorBelt) action).getHeading() != null) {
+                    int cell = board.getIndex(space);
+                    // if there are several belts on a space, the first one counts
+                    if (targets[cell] == NONE) {
+                        belts++;
+                        targets[cell] = board.getNeighbour(cell, ((ConveyorBelt) action).getHeading());
+                        if (targets[cell] < 0) {
+                            targets[cell] = cell;
+                        }
+                    }
+                }
+            }
+        }
+        this.belts = belts;
+    }
+
+    /**
+     * Returns the version of the layout of the board this graph was compiled from.
+     *
+     * @return the version of the layout
+     */
+    public int getLayoutVersion() {
+        return layoutVersion;
+    }
+
+    /**
+     * Returns the cell the conveyor belt on the given cell moves a robot to;
+     * this is the cell itself if the belt is blocked by a wall, and {@link #NONE}
+     * if there is no belt on the cell.
+     *
+     * @param cell the cell
+     * @return the target of the belt
+     */
+    public int getTarget(int cell) {
+        return targets[cell];
+    }
+
+    public boolean hasBelts() {
+        return belts > 0;
+    }
+
+    /**
+     * Moves all robots on conveyor belts. The positions of the robots are
+     * given as cells ({@link BoardState#EMPTY} for a robot that is not on the
+     * board); the new positions are written into the same array.
+     *
+     * @param positions the cells of the robots
+     * @return the number of robots that were moved
+     */
+    public int resolve(@NotNull int[] positions) {
+        if (belts == 0) {
+            return 0;
+        }
+        int robots = positions.length;
+        int[] status = new int[robots];
+        for (int i = 0; i < robots; i++) {
+            int cell = positions[i];
+            if (cell == BoardState.EMPTY || targets[cell] == NONE || targets[cell] == cell) {
+                status[i] = STAYS;
+            }
+        }
+        // merge conflicts: robots whose belts lead into the same cell stay
+        for (int i = 0; i < robots; i++) {
+            if (status[i] != STAYS) {
+                int target = targets[positions[i]];
+                for (int j = i + 1; j < robots; j++) {
+                    if (status[j] != STAYS && targets[positions[j]] == target) {
+                        status[i] = STAYS;
+                        status[j] = STAYS;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < robots; i++) {
+            canMove(i, positions, status);
+        }
+        int moved = 0;
+        for (int i = 0; i < robots; i++) {
+            if (status[i] == MOVES) {
+                positions[i] = targets[positions[i]];
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    private boolean canMove(int robot, int[] positions, int[] status) {
+        switch (status[robot]) {
+            case MOVES:
+                return true;
+            case STAYS:
+                return false;
+            case VISITING:
+                // the robots form a cycle on the belts
+                return true;
+            default:
+        }
+        status[robot] = VISITING;
+        int target = targets[positions[robot]];
+        int occupant = occupant(target, positions);
+        boolean moves;
+        if (occupant < 0) {
+            moves = true;
+        } else if (status[occupant] == VISITING) {
+            // a cycle of two robots facing each other blocks, longer cycles move
+            moves = targets[target] != positions[robot];
+        } else {
+            moves = canMove(occupant, positions, status);
+        }
+        status[robot] = moves ? MOVES : STAYS;
+        return moves;
+    }
+
+    private static int occupant(int cell, int[] positions) {
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i] == cell) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
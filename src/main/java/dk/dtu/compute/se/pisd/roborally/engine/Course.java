@@ -0,0 +1,285 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.engine;
+
+import dk.dtu.compute.se.pisd.roborally.controller.Checkpoint;
+import dk.dtu.compute.se.pisd.roborally.controller.FieldAction;
+import dk.dtu.compute.se.pisd.roborally.model.Board;
+import dk.dtu.compute.se.pisd.roborally.model.Space;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The field actions of a board that are relevant for the simulation of
+ * programs (conveyor belts and checkpoints), compiled into arrays indexed by
+ * the cells of a {@link BoardState}. A course is immutable and can be shared
+ * by the threads of a search; it must be created anew when the field actions
+ * of the board change.
+ *
+ */
+public final class Course {
+
+    final int width;
+    final int height;
+
+    // the numbers of the checkpoints of each cell (null if the cell has no
+    // field actions)
+    final int[][] actions;
+
+    final ConveyorGraph conveyors;
+
+    // the position of each cell in the order of the field actions (-1 if none)
+    final int[] order;
+
+    // the cell of each checkpoint by its number (-1 if there is none)
+    final int[] checkpoints;
+
+    // the number of the last checkpoint
+    final int goal;
+
+    // the value of a reached checkpoint, which is more than any distance
+    final int weight;
+
+    final DistanceFields distances;
+
+    /**
+     * Compiles the field actions of the given board.
+     *
+     * @param board the board
+     */
+    public Course(@NotNull Board board) {
+        width = board.width;
+        height = board.height;
+        actions = new int[width * height][];
+        order = new int[width * height];
+        distances = DistanceFields.of(board);
+        weight = distances.getMaxDistance() + 2;
+        conveyors = new ConveyorGraph(board);
+
+        List<Space> spaces = board.getActionSpaces();
+        int numbers = 0;
+        int last = 0;
+        for (Space space: spaces) {
+            for (FieldAction action: space.getActions()) {
+                if (action instanceof Checkpoint) {
+                    Checkpoint checkpoint = (Checkpoint) action;
+                    numbers = Math.max(numbers, checkpoint.getNumber());
+                    if (checkpoint.getLast()) {
+                        last = checkpoint.getNumber();
+                    }
+                }
+            }
+        }
+        goal = last > 0 ? last : numbers;
+        checkpoints = new int[numbers + 2];
+        Arrays.fill(checkpoints, BoardState.EMPTY);
+        Arrays.fill(order, -1);
+
+        for (int i = 0; i < spaces.size(); i++) {
+            Space space = spaces.get(i);
+            int cell = board.getIndex(space);
+            order[cell] = i;
+            List<FieldAction> fieldActions = space.getActions();
+            int[] encoded = new int[fieldActions.size()];
+            int length = 0;
+            for (FieldAction action: fieldActions) {
+                if (action instanceof Checkpoint) {
+                    int number = ((Checkpoint) action).getNumber();
+                    encoded[length++] = number;
+                    if (number > 0) {
+                        checkpoints[number] = cell;
+                    }
+                }
+            }
+            actions[cell] = Arrays.copyOf(encoded, length);
+        }
+    }
+
+    /**
+     * Returns the version of the layout of the board this course was compiled
+     * from (see {@link Board#getLayoutVersion()}).
+     *
+     * @return the version of the layout
+     */
+    public int getLayoutVersion() {
+        return conveyors.getLayoutVersion();
+    }
+
+    public ConveyorGraph getConveyors() {
+        return conveyors;
+    }
+
+    /**
+     * Returns the number of the checkpoint, which wins the game.
+     *
+     * @return the number of the last checkpoint
+     */
+    public int getGoal() {
+        return goal;
+    }
+
+    /**
+     * Returns the value of a reached checkpoint in the {@link #progress(BoardState, int)
+     * progress} of a player, which is more than the distance between any two cells.
+     *
+     * @return the weight of a checkpoint
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Executes the field actions for the given player after a register, in
+     * the same way as the game controller does when the player is the only
+     * robot on a conveyor belt: first the belt under the player (if any)
+     * moves the player, unless the target is occupied, then the checkpoint
+     * on the player's space (if any) is reached.
+     *
+     * @param state the state
+     * @param player the number of the player
+     * @return true if the player has won the game
+     */
+    public boolean doActions(@NotNull BoardState state, int player) {
+        int cell = state.getPosition(player);
+        if (cell == BoardState.EMPTY) {
+            return false;
+        }
+        int target = conveyors.getTarget(cell);
+        if (target != ConveyorGraph.NONE && target != cell && state.getOccupant(target) == BoardState.EMPTY) {
+            int[] positions = positions(state);
+            positions[player] = target;
+            state.moveAll(positions);
+            cell = target;
+        }
+        return reachCheckpoints(state, player, cell);
+    }
+
+    /**
+     * Executes the field actions for all players after a register, in the
+     * same way as {@link dk.dtu.compute.se.pisd.roborally.controller.GameController#doAllAction()}
+     * does: first, all robots on conveyor belts are moved at once (see
+     * {@link ConveyorGraph#resolve(int[])}); then the checkpoints are reached
+     * on the occupied spaces, in the order of their field actions.
+     *
+     * @param state the state
+     * @return the number of the player who has won the game, or -1 if no one has
+     */
+    public int doAllActions(@NotNull BoardState state) {
+        int players = state.getPlayersNumber();
+        if (conveyors.hasBelts()) {
+            int[] positions = positions(state);
+            if (conveyors.resolve(positions) > 0) {
+                state.moveAll(positions);
+            }
+        }
+        int last = -1;
+        while (true) {
+            int next = BoardState.EMPTY;
+            for (int i = 0; i < players; i++) {
+                int cell = state.getPosition(i);
+                if (cell != BoardState.EMPTY && order[cell] > last
+                        && (next == BoardState.EMPTY || order[cell] < order[next])) {
+                    next = cell;
+                }
+            }
+            if (next == BoardState.EMPTY) {
+                return -1;
+            }
+            last = order[next];
+            int player = state.getOccupant(next);
+            if (reachCheckpoints(state, player, next)) {
+                return player;
+            }
+        }
+    }
+
+    private boolean reachCheckpoints(BoardState state, int player, int cell) {
+        if (order[cell] < 0) {
+            return false;
+        }
+        for (int checkpoint: actions[cell]) {
+            if (state.getCheckpoint(player) == checkpoint - 1) {
+                state.setCheckpoint(player, checkpoint);
+                if (checkpoint == goal) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int[] positions(BoardState state) {
+        int[] positions = new int[state.getPlayersNumber()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = state.getPosition(i);
+        }
+        return positions;
+    }
+
+    /**
+     * Returns how far the given player has got on the course: the number of
+     * reached checkpoints times the {@link #getWeight() weight}, minus the
+     * distance to the next checkpoint.
+     *
+     * @param state the state
+     * @param player the number of the player
+     * @return the progress of the player
+     */
+    public int progress(@NotNull BoardState state, int player) {
+        int checkpoint = state.getCheckpoint(player);
+        return checkpoint * weight - distance(state.getPosition(player), checkpoint + 1);
+    }
+
+    /**
+     * Returns the shortest distance of the given cell to the given checkpoint
+     * (see {@link DistanceFields}).
+     *
+     * @param cell the cell
+     * @param checkpoint the number of the checkpoint
+     * @return the distance (0 if there is no such checkpoint, and one less
+     *         than the {@link #getWeight() weight} if it cannot be reached)
+     */
+    public int distance(int cell, int checkpoint) {
+        if (checkpoint >= checkpoints.length || checkpoints[checkpoint] == BoardState.EMPTY) {
+            return 0;
+        }
+        int distance = distances.distance(checkpoint, cell);
+        return distance == DistanceFields.UNREACHABLE ? weight - 1 : distance;
+    }
+
+    /**
+     * Returns the distance between the two given cells on the board (which
+     * wraps around at its edges), not taking walls into account.
+     *
+     * @param cell the one cell
+     * @param target the other cell
+     * @return the number of moves needed from one cell to the other
+     */
+    public int distanceBetween(int cell, int target) {
+        int dx = Math.abs(cell % width - target % width);
+        int dy = Math.abs(cell / width - target / width);
+        return Math.min(dx, width - dx) + Math.min(dy, height - dy);
+    }
+
+}
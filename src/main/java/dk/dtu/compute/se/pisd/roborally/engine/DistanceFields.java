@@ -0,0 +1,223 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.engine;
+
+import dk.dtu.compute.se.pisd.roborally.controller.Checkpoint;
+import dk.dtu.compute.se.pisd.roborally.controller.FieldAction;
+import dk.dtu.compute.se.pisd.roborally.model.Board;
+import dk.dtu.compute.se.pisd.roborally.model.Heading;
+import dk.dtu.compute.se.pisd.roborally.model.Space;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The shortest distances from every cell of a board to each checkpoint. The
+ * distance is the smallest number of single cell moves a robot needs for
+ * getting to the checkpoint, taking into account the walls and the wrapping
+ * of the board at its edges (see {@link Board#getNeighbour(int, Heading)}),
+ * and that a robot on a conveyor belt is moved by the belt for free (see
+ * {@link ConveyorGraph}). The distance fields of all checkpoints are computed
+ * at once by a breadth first search from each checkpoint (with edges of
+ * length 0 for the belts), so that a distance is a single array access.<p></p>
+ *
+ * The distance fields of a board are cached (see {@link #of(Board)}) and
+ * computed again only when the layout of the board changes; boards on the
+ * same shared {@link dk.dtu.compute.se.pisd.roborally.model.BoardLayout}
+ * share their distance fields.
+ *
+ */
+public final class DistanceFields {
+
+    /**
+     * The distance of a cell from which a checkpoint cannot be reached.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final Map<Object, DistanceFields> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final int layoutVersion;
+
+    // the distances of the cells to each checkpoint by its number
+    // (null if there is no checkpoint with that number)
+    private final int[][] fields;
+
+    // a cell of each checkpoint by its number
+    private final int[] checkpointCells;
+
+    private final int maxDistance;
+
+    /**
+     * Returns the distance fields of the given board, which are computed only
+     * if the board has no distance fields yet, or if its layout has changed
+     * since they were computed.
+     *
+     * @param board the board
+     * @return the distance fields of the board
+     */
+    public static DistanceFields of(@NotNull Board board) {
+        Object key = board.getLayout() != null ? board.getLayout() : board;
+        DistanceFields fields = CACHE.get(key);
+        if (fields == null || fields.layoutVersion != board.getLayoutVersion()) {
+            fields = new DistanceFields(board);
+            CACHE.put(key, fields);
+        }
+        return fields;
+    }
+
+    private DistanceFields(Board board) {
+        layoutVersion = board.getLayoutVersion();
+        int cells = board.width * board.height;
+        int numbers = 0;
+        for (Space space: board.getActionSpaces()) {
+            for (FieldAction action: space.getActions()) {
+                if (action instanceof Checkpoint) {
+                    numbers = Math.max(numbers, ((Checkpoint) action).getNumber());
+                }
+            }
+        }
+
+        // the belts leading into each cell, as linked lists
+        ConveyorGraph conveyors = new ConveyorGraph(board);
+        int[] firstBelt = new int[cells];
+        int[] nextBelt = new int[cells];
+        Arrays.fill(firstBelt, -1);
+        for (int cell = 0; cell < cells; cell++) {
+            int target = conveyors.getTarget(cell);
+            if (target != ConveyorGraph.NONE && target != cell) {
+                nextBelt[cell] = firstBelt[target];
+                firstBelt[target] = cell;
+            }
+        }
+
+        fields = new int[numbers + 1][];
+        checkpointCells = new int[numbers + 1];
+        int max = 0;
+        // every cell is added to the queue at most once for each of its edges
+        // (four moves and a belt) and once as a checkpoint
+        int[] queue = new int[Integer.highestOneBit(6 * cells) << 1];
+        int mask = queue.length - 1;
+        for (Space space: board.getActionSpaces()) {
+            for (FieldAction action: space.getActions()) {
+                if (action instanceof Checkpoint && ((Checkpoint) action).getNumber() > 0) {
+                    int number = ((Checkpoint) action).getNumber();
+                    if (fields[number] == null) {
+                        fields[number] = new int[cells];
+                        Arrays.fill(fields[number], UNREACHABLE);
+                    }
+                    fields[number][board.getIndex(space)] = 0;
+                    checkpointCells[number] = board.getIndex(space);
+                }
+            }
+        }
+        Heading[] headings = Heading.values();
+        for (int[] field: fields) {
+            if (field == null) {
+                continue;
+            }
+            // a 0-1 breadth first search backwards from the checkpoint(s): the
+            // queue is used as a deque, cells reached over a belt (length 0) are
+            // added at the front, cells reached by a move at the back
+            int head = 0;
+            int tail = 0;
+            for (int cell = 0; cell < cells; cell++) {
+                if (field[cell] == 0) {
+                    queue[tail++ & mask] = cell;
+                }
+            }
+            while (head != tail) {
+                int cell = queue[head++ & mask];
+                int distance = field[cell];
+                for (int belt = firstBelt[cell]; belt >= 0; belt = nextBelt[belt]) {
+                    if (distance < field[belt]) {
+                        field[belt] = distance;
+                        queue[--head & mask] = belt;
+                    }
+                }
+                for (Heading heading: headings) {
+                    int neighbour = board.getNeighbour(cell, heading);
+                    if (neighbour >= 0 && distance + 1 < field[neighbour]) {
+                        field[neighbour] = distance + 1;
+                        queue[tail++ & mask] = neighbour;
+                    }
+                }
+                max = Math.max(max, distance);
+            }
+        }
+        maxDistance = max;
+    }
+
+    /**
+     * Returns the distance of the given cell to the checkpoint with the given
+     * number.
+     *
+     * @param checkpoint the number of the checkpoint
+     * @param cell the cell
+     * @return the distance, or {@link #UNREACHABLE} if the checkpoint cannot be
+     *         reached from the cell (or if there is no such checkpoint)
+     */
+    public int distance(int checkpoint, int cell) {
+        if (checkpoint <= 0 || checkpoint >= fields.length || fields[checkpoint] == null || cell < 0) {
+            return UNREACHABLE;
+        }
+        return fields[checkpoint][cell];
+    }
+
+    /**
+     * Returns the distance of a robot on the given cell, which has reached the
+     * given checkpoint, to the last checkpoint: the distance to the next
+     * checkpoint plus the distances between the remaining checkpoints. This
+     * is a lower bound of the moves the robot needs for winning the game.
+     *
+     * @param checkpoint the checkpoint the robot has reached
+     * @param cell the cell of the robot
+     * @param goal the number of the last checkpoint
+     * @return the distance, or {@link #UNREACHABLE} if the game cannot be won
+     *         from the cell
+     */
+    public int distanceToGoal(int checkpoint, int cell, int goal) {
+        long total = 0;
+        int from = cell;
+        for (int next = checkpoint + 1; next <= goal; next++) {
+            int distance = distance(next, from);
+            if (distance == UNREACHABLE) {
+                return UNREACHABLE;
+            }
+            total += distance;
+            from = checkpointCells[next];
+        }
+        return (int) Math.min(total, UNREACHABLE - 1);
+    }
+
+    /**
+     * Returns the largest finite distance of any cell to any checkpoint.
+     *
+     * @return the largest distance
+     */
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+}
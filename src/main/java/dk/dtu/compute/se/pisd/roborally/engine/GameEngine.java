@@ -0,0 +1,183 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.engine;
+
+import dk.dtu.compute.se.pisd.roborally.controller.GameController;
+import dk.dtu.compute.se.pisd.roborally.model.*;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A headless driver for a RoboRally game. The engine runs the rules of the
+ * {@link GameController} (programming phase, activation of the registers and
+ * the field actions) without any dependency on JavaFX, so that games can be
+ * run in a batch job or on a server. Interactive command cards are resolved
+ * by an {@link InteractionHandler} and the end of the game is reported to a
+ * {@link GameOverListener} and by the return values of the respective methods.
+ *
+ */
+public class GameEngine {
+
+    final public Board board;
+
+    final public GameController gameController;
+
+    private InteractionHandler interactionHandler = InteractionHandler.FIRST_OPTION;
+
+    private GameOverListener gameOverListener;
+
+    private boolean gameOverReported = false;
+
+    private int registers = 0;
+
+    public GameEngine(@NotNull Board board) {
+        this(new GameController(board));
+    }
+
+    public GameEngine(@NotNull GameController gameController) {
+        this.gameController = gameController;
+        this.board = gameController.board;
+    }
+
+    public void setInteractionHandler(@NotNull InteractionHandler interactionHandler) {
+        this.interactionHandler = interactionHandler;
+    }
+
+    public void setGameOverListener(GameOverListener gameOverListener) {
+        this.gameOverListener = gameOverListener;
+    }
+
+    /**
+     * Returns the number of registers that were completely executed
+     * (by all players) by this engine so far.
+     *
+     * @return the number of executed registers
+     */
+    public int getRegisters() {
+        return registers;
+    }
+
+    public boolean isGameOver() {
+        return board.getPhase() == Phase.FINISHED;
+    }
+
+    /**
+     * Starts the programming phase; the cards are dealt to all players, and
+     * the programs of the players are cleared.
+     *
+     * @see GameController#startProgrammingPhase()
+     */
+    public void startProgrammingPhase() {
+        gameController.startProgrammingPhase();
+    }
+
+    /**
+     * Finishes the programming phase, so that the registers can be executed.
+     *
+     * @see GameController#finishProgrammingPhase()
+     */
+    public void finishProgrammingPhase() {
+        gameController.finishProgrammingPhase();
+    }
+
+    /**
+     * Executes the next step of the activation phase, i.e. the command of the
+     * current register of the current player (and the field actions, when this
+     * was the last player of the register). An interactive command is resolved
+     * right away by the interaction handler of this engine.
+     *
+     * @return true if the game is over after this step, false otherwise
+     */
+    public boolean executeNextStep() {
+        Phase phase = board.getPhase();
+        int step = board.getStep();
+        if (phase == Phase.ACTIVATION || phase == Phase.INTERACTED) {
+            gameController.executeNextStep();
+            if (board.getPhase() == Phase.PLAYER_INTERACTION) {
+                resolveInteraction();
+            }
+        } else if (phase == Phase.PLAYER_INTERACTION) {
+            resolveInteraction();
+        } else {
+            return checkGameOver();
+        }
+        if (board.getStep() != step || board.getPhase() != Phase.ACTIVATION) {
+            registers++;
+        }
+        return checkGameOver();
+    }
+
+    /**
+     * Executes all the remaining steps of the activation phase, until the game
+     * returns to the programming phase or the game is over.
+     *
+     * @return the winner if the game is over, null otherwise
+     */
+    public Player executeRegisters() {
+        if (gameController.executeIndependentPrograms()) {
+            // the robots could not interact, so the whole round was looked up
+            registers += Player.NO_REGISTERS;
+            return null;
+        }
+        while (board.getPhase() == Phase.ACTIVATION ||
+                board.getPhase() == Phase.INTERACTED ||
+                board.getPhase() == Phase.PLAYER_INTERACTION) {
+            if (executeNextStep()) {
+                return board.getWinner();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Executes the field actions of the board once.
+     *
+     * @return true if the game is over after the field actions, false otherwise
+     * @see GameController#doAllAction()
+     */
+    public boolean doAllAction() {
+        gameController.doAllAction();
+        return checkGameOver();
+    }
+
+    private void resolveInteraction() {
+        Player player = board.getCurrentPlayer();
+        int step = board.getStep();
+        CommandCard card = player.getProgramField(step).getCard();
+        Command choice = interactionHandler.choose(player, card.command);
+        gameController.executeOption(player, choice == Command.RIGHT ? Command.RIGHT : Command.LEFT);
+        gameController.executeNextStep();
+    }
+
+    private boolean checkGameOver() {
+        if (board.getPhase() == Phase.FINISHED) {
+            if (!gameOverReported) {
+                gameOverReported = true;
+                if (gameOverListener != null) {
+                    gameOverListener.gameOver(board, board.getWinner());
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+}
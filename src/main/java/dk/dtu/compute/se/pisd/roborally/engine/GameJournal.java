@@ -0,0 +1,310 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.engine;
+
+import dk.dtu.compute.se.pisd.roborally.model.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A compact, append-only binary journal of a game. The journal starts with
+ * the initial state of the game (the name of the board, the seed and the
+ * players with their positions), followed by the events of the game: the
+ * executed commands, the results of the field actions (robots moved by
+ * conveyor belts and reached checkpoints), and the phase transitions. All
+ * numbers are written as variable length integers (7 bits per byte), so that
+ * most events take only three or four bytes. The bytes of a journal (see
+ * {@link #toByteArray()}) start with the number of its events, so that a
+ * journal can be rebuilt from its bytes alone.<p></p>
+ *
+ * The journal is written by the
+ * {@link dk.dtu.compute.se.pisd.roborally.controller.GameController} (see
+ * {@link dk.dtu.compute.se.pisd.roborally.controller.GameController#setJournal(GameJournal)}),
+ * and a board can be rebuilt from it up to any event by the
+ * {@link JournalReplayer}. Note that a journal is not thread-safe; it should
+ * be written only by the thread running the game.
+ *
+ */
+public class GameJournal {
+
+    static final int COMMAND = 1;
+    static final int MOVE = 2;
+    static final int CHECKPOINT = 3;
+    static final int PHASE = 4;
+    static final int WINNER = 5;
+
+    private byte[] buffer;
+
+    private int size;
+
+    private int events;
+
+    /**
+     * Creates a new journal for the game on the given board, which starts
+     * with the current state of the game.
+     *
+     * @param board the board of the game
+     */
+    public GameJournal(@NotNull Board board) {
+        buffer = new byte[256];
+        writeString(board.boardName);
+        writeLong(board.getSeed());
+        writeInt(board.getPlayersNumber());
+        for (int i = 0; i < board.getPlayersNumber(); i++) {
+            Player player = board.getPlayer(i);
+            writeString(player.getName());
+            writeString(player.getColor());
+            Space space = player.getSpace();
+            // positions are shifted by one, so that 0 represents no space
+            writeInt(space != null ? space.x + 1 : 0);
+            writeInt(space != null ? space.y + 1 : 0);
+            writeInt(player.getHeading().ordinal());
+            writeInt(player.getCurrentCheckpoint());
+        }
+        writeInt(board.getPhase().ordinal());
+        writeInt(board.getStep());
+        writeInt(board.getCurrentPlayerNumber() + 1);
+    }
+
+    /**
+     * Creates a journal from the bytes of a journal (see {@link #toByteArray()}).
+     * New events can be appended to this journal.
+     *
+     * @param bytes the bytes of the journal
+     */
+    public GameJournal(@NotNull byte[] bytes) {
+        // the number of events is not part of the buffer, since it
+        // changes with each appended event
+        int events = 0;
+        int shift = 0;
+        int start = 0;
+        byte b;
+        do {
+            if (start == bytes.length) {
+                throw new IllegalArgumentException("The bytes are not a journal!");
+            }
+            b = bytes[start++];
+            events |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        this.buffer = Arrays.copyOfRange(bytes, start, start + Math.max(bytes.length - start, 16));
+        this.size = bytes.length - start;
+        this.events = events;
+    }
+
+    /**
+     * Records that the given player executed the given command. For interactive
+     * commands, the option chosen by the player is recorded.
+     *
+     * @param player the number of the player
+     * @param command the executed command
+     */
+    public void command(int player, @NotNull Command command) {
+        writeInt(COMMAND);
+        writeInt(player);
+        writeInt(command.ordinal());
+        events++;
+    }
+
+    /**
+     * Records that the given player was moved to the given position by a
+     * field action.
+     *
+     * @param player the number of the player
+     * @param x the x coordinate of the new position
+     * @param y the y coordinate of the new position
+     */
+    public void move(int player, int x, int y) {
+        writeInt(MOVE);
+        writeInt(player);
+        writeInt(x);
+        writeInt(y);
+        events++;
+    }
+
+    /**
+     * Records that the given player reached the given checkpoint.
+     *
+     * @param player the number of the player
+     * @param checkpoint the number of the checkpoint
+     */
+    public void checkpoint(int player, int checkpoint) {
+        writeInt(CHECKPOINT);
+        writeInt(player);
+        writeInt(checkpoint);
+        events++;
+    }
+
+    /**
+     * Records a transition of the game to the given phase and step with the
+     * given current player.
+     *
+     * @param phase the phase
+     * @param step the step
+     * @param current the number of the current player (-1 if there is none)
+     */
+    public void phase(@NotNull Phase phase, int step, int current) {
+        writeInt(PHASE);
+        writeInt(phase.ordinal());
+        writeInt(step);
+        writeInt(current + 1);
+        events++;
+    }
+
+    /**
+     * Records that the given player won the game.
+     *
+     * @param player the number of the winner
+     */
+    public void winner(int player) {
+        writeInt(WINNER);
+        writeInt(player);
+        events++;
+    }
+
+    /**
+     * Returns the number of events recorded in this journal.
+     *
+     * @return the number of events
+     */
+    public int getEvents() {
+        return events;
+    }
+
+    /**
+     * Returns the size of this journal in bytes.
+     *
+     * @return the size of the journal
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the bytes of this journal: the number of events, followed by
+     * the initial state and the events of the game.
+     *
+     * @return the bytes of the journal
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[5 + size];
+        int start = 0;
+        int value = events;
+        while ((value & ~0x7F) != 0) {
+            bytes[start++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[start++] = (byte) value;
+        System.arraycopy(buffer, 0, bytes, start, size);
+        return Arrays.copyOf(bytes, start + size);
+    }
+
+    Reader reader() {
+        return new Reader();
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (size + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, size + bytes));
+        }
+    }
+
+    private void writeInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    private void writeLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            writeInt(0);
+        } else {
+            // the length is shifted by one, so that 0 represents null
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length + 1);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+    }
+
+    /**
+     * Reads the contents of the journal from the beginning.
+     */
+    class Reader {
+
+        private int position = 0;
+
+        boolean hasNext() {
+            return position < size;
+        }
+
+        int readInt() {
+            int result = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer[position++];
+                result |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return result;
+        }
+
+        long readLong() {
+            long result = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer[position++];
+                result |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return result;
+        }
+
+        String readString() {
+            int length = readInt();
+            if (length == 0) {
+                return null;
+            }
+            String result = new String(buffer, position, length - 1, StandardCharsets.UTF_8);
+            position += length - 1;
+            return result;
+        }
+    }
+
+}
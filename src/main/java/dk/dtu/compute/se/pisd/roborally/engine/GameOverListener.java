@@ -0,0 +1,45 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.engine;
+
+import dk.dtu.compute.se.pisd.roborally.model.Board;
+import dk.dtu.compute.se.pisd.roborally.model.Player;
+
+/**
+ * A callback, which is informed when a game is over. This way, the game logic
+ * can report the end of a game without knowing anything about how (or whether)
+ * it is shown to the user; the GUI registers a listener which opens a dialog,
+ * whereas simulations can just record the winner.
+ *
+ */
+@FunctionalInterface
+public interface GameOverListener {
+
+    /**
+     * Called once, when the game on the given board is finished.
+     *
+     * @param board the board of the game that is finished
+     * @param winner the winner of the game (might be null, if there is no winner)
+     */
+    void gameOver(Board board, Player winner);
+
+}
@@ -0,0 +1,51 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.engine;
+
+import dk.dtu.compute.se.pisd.roborally.model.Command;
+import dk.dtu.compute.se.pisd.roborally.model.Player;
+
+/**
+ * Decides the option of an interactive command card (like {@link Command#LEFT_OR_RIGHT})
+ * when there is no user who could push a button. The returned command is executed
+ * for the player instead of the interactive command.
+ *
+ */
+@FunctionalInterface
+public interface InteractionHandler {
+
+    /**
+     * A handler which always chooses the first option ({@link Command#LEFT}).
+     */
+    InteractionHandler FIRST_OPTION = (player, command) -> Command.LEFT;
+
+    /**
+     * Returns the option the player chooses for the given interactive command.
+     * The result must be one of {@link Command#LEFT} or {@link Command#RIGHT}.
+     *
+     * @param player the player who needs to make a choice
+     * @param command the interactive command
+     * @return the chosen (non-interactive) command
+     */
+    Command choose(Player player, Command command);
+
+}
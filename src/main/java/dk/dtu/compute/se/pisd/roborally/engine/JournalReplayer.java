@@ -0,0 +1,131 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.engine;
+
+import dk.dtu.compute.se.pisd.roborally.controller.GameController;
+import dk.dtu.compute.se.pisd.roborally.fileaccess.LoadBoard;
+import dk.dtu.compute.se.pisd.roborally.model.*;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Rebuilds the state of a game from a {@link GameJournal}: the positions,
+ * headings and checkpoints of the players, the phase, step and current player,
+ * and the winner. The commands of the journal are executed again by a
+ * {@link GameController}; the results of the field actions are taken from the
+ * journal.
+ *
+ */
+public class JournalReplayer {
+
+    private JournalReplayer() {
+    }
+
+    /**
+     * Rebuilds the game of the journal up to (and including) the given number
+     * of events. The board is loaded by the name recorded in the journal.
+     *
+     * @param journal the journal
+     * @param events the number of events to replay
+     * @return the board with the state of the game after the given number of events
+     */
+    public static Board replay(@NotNull GameJournal journal, int events) {
+        GameJournal.Reader reader = journal.reader();
+        Board board = LoadBoard.loadBoard(reader.readString());
+        return replay(journal, board, events);
+    }
+
+    /**
+     * Rebuilds the game of the journal up to (and including) the given number
+     * of events on the given board. The board must be a new board with the same
+     * layout as the board of the journal, but without any players.
+     *
+     * @param journal the journal
+     * @param board the new board
+     * @param events the number of events to replay
+     * @return the given board with the state of the game after the given number of events
+     */
+    public static Board replay(@NotNull GameJournal journal, @NotNull Board board, int events) {
+        GameJournal.Reader reader = journal.reader();
+        reader.readString(); // the name of the board
+        board.setSeed(reader.readLong());
+        int players = reader.readInt();
+        for (int i = 0; i < players; i++) {
+            String name = reader.readString();
+            String color = reader.readString();
+            Player player = new Player(board, color, name);
+            board.addPlayer(player);
+            int x = reader.readInt();
+            int y = reader.readInt();
+            if (x > 0 && y > 0) {
+                player.setSpace(board.getSpace(x - 1, y - 1));
+            }
+            player.setHeading(Heading.values()[reader.readInt()]);
+            player.setCurrentCheckpoint(reader.readInt());
+        }
+        setPhase(board, reader.readInt(), reader.readInt(), reader.readInt() - 1);
+
+        GameController gameController = new GameController(board);
+        for (int event = 0; event < events && reader.hasNext(); event++) {
+            int type = reader.readInt();
+            switch (type) {
+                case GameJournal.COMMAND: {
+                    Player player = board.getPlayer(reader.readInt());
+                    Command command = Command.values()[reader.readInt()];
+                    board.setCurrentPlayer(player);
+                    gameController.executeCommand(player, command);
+                    break;
+                }
+                case GameJournal.MOVE: {
+                    Player player = board.getPlayer(reader.readInt());
+                    int x = reader.readInt();
+                    int y = reader.readInt();
+                    player.setSpace(board.getSpace(x, y));
+                    break;
+                }
+                case GameJournal.CHECKPOINT: {
+                    Player player = board.getPlayer(reader.readInt());
+                    player.setCurrentCheckpoint(reader.readInt());
+                    break;
+                }
+                case GameJournal.PHASE:
+                    setPhase(board, reader.readInt(), reader.readInt(), reader.readInt() - 1);
+                    break;
+                case GameJournal.WINNER:
+                    board.setWinner(board.getPlayer(reader.readInt()));
+                    board.setPhase(Phase.FINISHED);
+                    break;
+                default:
+                    throw new IllegalStateException("Corrupt game journal: unknown event " + type + "!");
+            }
+        }
+        return board;
+    }
+
+    private static void setPhase(Board board, int phase, int step, int current) {
+        board.setPhase(Phase.values()[phase]);
+        board.setStep(step);
+        if (current >= 0) {
+            board.setCurrentPlayer(board.getPlayer(current));
+        }
+    }
+
+}
@@ -0,0 +1,276 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.engine;
+
+import dk.dtu.compute.se.pisd.roborally.model.Board;
+import dk.dtu.compute.se.pisd.roborally.model.Command;
+import dk.dtu.compute.se.pisd.roborally.model.CommandCard;
+import dk.dtu.compute.se.pisd.roborally.model.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A cache of the outcomes of the programs of single robots on a board. On a
+ * board with fixed walls and field actions, the position, heading and
+ * checkpoint of a robot after its program depend only on where the robot
+ * started (cell, heading and checkpoint) and on the program, as long as no
+ * other robot gets in its way. The outcomes are computed on demand and kept
+ * in a bounded {@link TranspositionTable}; so repeated programs from the same
+ * situation, which are frequent in simulations, are table lookups.<p></p>
+ *
+ * A program is encoded in an <code>int</code> (see {@link #encode(int[], int)}),
+ * and an outcome in a <code>long</code>, which is read by the static accessors
+ * of this class. Besides the final state of the robot, an outcome contains the
+ * number of single cell moves the robot made; two robots whose starting cells
+ * are further apart than their moves together cannot have met during the
+ * round (see {@link #apart(int, long, int, long)}), in which case their
+ * outcomes are the same as when executing the registers of all robots one
+ * by one.<p></p>
+ *
+ * The outcomes are computed on the layout of the board at the time this
+ * object was created; it must be created anew when the walls or field actions
+ * of the board change. Interactive commands are executed with the first
+ * option ({@link Command#LEFT}). This class is thread-safe.
+ *
+ */
+public class ProgramOutcomes {
+
+    /**
+     * The default number of cached outcomes.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final long ABSENT = -1L;
+
+    private static final Map<Object, ProgramOutcomes> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Course course;
+
+    private final TranspositionTable table;
+
+    private final ThreadLocal<BoardState> states;
+
+    public ProgramOutcomes(@NotNull Board board) {
+        this(board, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates the cache of the outcomes of programs on the given board.
+     *
+     * @param board the board
+     * @param capacity the maximum number of cached outcomes
+     */
+    public ProgramOutcomes(@NotNull Board board, int capacity) {
+        this.course = new Course(board);
+        this.table = new TranspositionTable(capacity);
+        BoardState layout = new BoardState(board);
+        this.states = ThreadLocal.withInitial(() -> new BoardState(layout, 1));
+    }
+
+    /**
+     * Returns the cached outcomes of programs on the given board, which are
+     * created anew only if there are none yet or the layout of the board has
+     * changed since. All boards on the same shared
+     * {@link dk.dtu.compute.se.pisd.roborally.model.BoardLayout} share their
+     * outcomes.
+     *
+     * @param board the board
+     * @return the outcomes of programs on the board
+     */
+    public static ProgramOutcomes of(@NotNull Board board) {
+        Object key = board.getLayout() != null ? board.getLayout() : board;
+        ProgramOutcomes outcomes = CACHE.get(key);
+        if (outcomes == null || outcomes.course.getLayoutVersion() != board.getLayoutVersion()) {
+            outcomes = new ProgramOutcomes(board);
+            CACHE.put(key, outcomes);
+        }
+        return outcomes;
+    }
+
+    public Course getCourse() {
+        return course;
+    }
+
+    /**
+     * Returns the number of outcomes that were found in the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return table.getHits();
+    }
+
+    /**
+     * Returns the number of outcomes that were not in the cache and were
+     * computed.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return table.getMisses();
+    }
+
+    /**
+     * Encodes the given commands (by their ordinals) as a program; a program
+     * has at most {@link Player#NO_REGISTERS} commands.
+     *
+     * @param commands the ordinals of the commands
+     * @param length the number of commands
+     * @return the code of the program
+     */
+    public static int encode(@NotNull int[] commands, int length) {
+        int program = length;
+        for (int i = 0; i < length; i++) {
+            int command = commands[i];
+            if (Command.values()[command].isInteractive()) {
+                command = Command.LEFT.ordinal();
+            }
+            program |= command << (3 + 3 * i);
+        }
+        return program;
+    }
+
+    /**
+     * Encodes the program in the program fields of the given player; if a
+     * register of the player is empty, -1 is returned.
+     *
+     * @param player the player
+     * @return the code of the player's program, or -1 if it is not complete
+     */
+    public static int encode(@NotNull Player player) {
+        int[] commands = new int[Player.NO_REGISTERS];
+        for (int i = 0; i < Player.NO_REGISTERS; i++) {
+            CommandCard card = player.getProgramField(i).getCard();
+            if (card == null) {
+                return -1;
+            }
+            commands[i] = card.command.ordinal();
+        }
+        return encode(commands, Player.NO_REGISTERS);
+    }
+
+    /**
+     * Returns the outcome of the given program for a robot, which starts on the
+     * given cell with the given heading and checkpoint and is alone on the board.
+     *
+     * @param cell the cell where the robot starts
+     * @param heading the ordinal of the heading of the robot
+     * @param checkpoint the checkpoint of the robot
+     * @param program the code of the program (see {@link #encode(int[], int)})
+     * @return the outcome
+     */
+    public long outcome(int cell, int heading, int checkpoint, int program) {
+        if (checkpoint < 0 || checkpoint > 0xff) {
+            return simulate(cell, heading, checkpoint, program);
+        }
+        long key = ((long) cell << 32) | ((long) heading << 30) | ((long) checkpoint << 22) | program;
+        long outcome = table.get(key, ABSENT);
+        if (outcome == ABSENT) {
+            outcome = simulate(cell, heading, checkpoint, program);
+            table.put(key, outcome);
+        }
+        return outcome;
+    }
+
+    private long simulate(int cell, int heading, int checkpoint, int program) {
+        BoardState state = states.get();
+        state.place(0, cell, heading, checkpoint);
+        int moves = state.getMoves();
+        int length = program & 7;
+        int won = 0;
+        Command[] commands = Command.values();
+        for (int register = 0; register < length; register++) {
+            state.executeCommand(0, commands[(program >>> (3 + 3 * register)) & 7]);
+            if (course.doActions(state, 0)) {
+                won = register + 1;
+                break;
+            }
+        }
+        long outcome = (state.getPosition(0) & 0xffffffffL)
+                | ((long) state.getHeading(0) << 32)
+                | ((long) Math.min(state.getCheckpoint(0), 0xfff) << 34)
+                | ((long) Math.min(state.getMoves() - moves, 0x3ff) << 46)
+                | ((long) won << 56);
+        state.place(0, BoardState.EMPTY, 0, 0);
+        return outcome;
+    }
+
+    /**
+     * Returns true, if two robots starting on the given cells with the given
+     * outcomes of their programs could not have met during their programs; in
+     * that case, the outcomes are the actual results of their programs.
+     *
+     * @param cell the cell where the one robot started
+     * @param outcome the outcome of the one robot
+     * @param otherCell the cell where the other robot started
+     * @param otherOutcome the outcome of the other robot
+     * @return true if the robots cannot have interacted
+     */
+    public boolean apart(int cell, long outcome, int otherCell, long otherOutcome) {
+        int moves = moves(outcome);
+        int otherMoves = moves(otherOutcome);
+        return moves < 0x3ff && otherMoves < 0x3ff && course.distanceBetween(cell, otherCell) > moves + otherMoves;
+    }
+
+    /**
+     * Returns the cell of the robot after the program.
+     *
+     * @param outcome the outcome
+     * @return the cell
+     */
+    public static int cell(long outcome) {
+        return (int) outcome;
+    }
+
+    public static int heading(long outcome) {
+        return (int) (outcome >>> 32) & 3;
+    }
+
+    public static int checkpoint(long outcome) {
+        return (int) (outcome >>> 34) & 0xfff;
+    }
+
+    /**
+     * Returns the number of single cell moves of the robot during the program;
+     * if the number is 1023, the robot might have moved even more.
+     *
+     * @param outcome the outcome
+     * @return the number of moves
+     */
+    public static int moves(long outcome) {
+        return (int) (outcome >>> 46) & 0x3ff;
+    }
+
+    /**
+     * Returns the register in which the robot won the game, or -1 if it did not.
+     *
+     * @param outcome the outcome
+     * @return the winning register
+     */
+    public static int winner(long outcome) {
+        return (int) (outcome >>> 56) - 1;
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.engine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of results of simulations (e.g. evaluations of positions or
+ * outcomes of programs), keyed by the hash of a state (see
+ * {@link dk.dtu.compute.se.pisd.roborally.model.Zobrist}). The table has a
+ * fixed number of entries; an entry is replaced when another key hashes to
+ * the same slot, so the table never grows. The results are packed into a
+ * <code>long</code> by the user of the table.<p></p>
+ *
+ * The table is divided into stripes, each of which is guarded by its own
+ * lock, so that the threads of a parallel search can share the table without
+ * contending for a single lock.
+ *
+ */
+public class TranspositionTable {
+
+    private static final int STRIPES = 16;
+
+    private final long[] keys;
+
+    private final long[] values;
+
+    private final boolean[] used;
+
+    private final Object[] locks;
+
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a new table with (at least) the given number of entries; the
+     * number of entries is rounded up to a power of two.
+     *
+     * @param capacity the number of entries
+     */
+    public TranspositionTable(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive!");
+        }
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        keys = new long[size];
+        values = new long[size];
+        used = new boolean[size];
+        mask = size - 1;
+        locks = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Returns the value stored for the given key, or the given default value
+     * if there is none (any longer).
+     *
+     * @param key the key
+     * @param absent the value returned if there is no value for the key
+     * @return the value for the key
+     */
+    public long get(long key, long absent) {
+        int slot = slot(key);
+        synchronized (locks[slot & (STRIPES - 1)]) {
+            if (used[slot] && keys[slot] == key) {
+                hits.increment();
+                return values[slot];
+            }
+        }
+        misses.increment();
+        return absent;
+    }
+
+    /**
+     * Stores the given value for the given key, replacing the entry for any
+     * other key in the same slot.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public void put(long key, long value) {
+        int slot = slot(key);
+        synchronized (locks[slot & (STRIPES - 1)]) {
+            keys[slot] = key;
+            values[slot] = value;
+            used[slot] = true;
+        }
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+}
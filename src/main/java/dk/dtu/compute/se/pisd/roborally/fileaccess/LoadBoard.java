@@ -34,6 +34,7 @@ import dk.dtu.compute.se.pisd.roborally.fileaccess.model.BoardTemplate;
 import dk.dtu.compute.se.pisd.roborally.fileaccess.model.ConveyorBeltTemplate;
 import dk.dtu.compute.se.pisd.roborally.fileaccess.model.SpaceTemplate;
 import dk.dtu.compute.se.pisd.roborally.model.Board;
+import dk.dtu.compute.se.pisd.roborally.model.Deck;
 import dk.dtu.compute.se.pisd.roborally.model.Space;
 
 import java.io.FileWriter;
@@ -54,15 +55,34 @@ public class LoadBoard {
     private static final String DEFAULTBOARD = "defaultboard";
     private static final String JSON_EXT = "json";
 
+    /**
+     * Loads the board with the given name for a new game. The layout of
+     * the board is read only once, and then shared by all games on that
+     * board (see {@link BoardFactory#getLayout(String)}).
+     *
+     * @param boardname the name of the board
+     * @return a new board with the given layout
+     */
     public static Board loadBoard(String boardname) {
         if (boardname == null) {
             boardname = DEFAULTBOARD;
         }
+        return new Board(BoardFactory.getInstance().getLayout(boardname));
+    }
 
+    /**
+     * Reads the board with the given name from its JSON file. The board
+     * is read anew on every call; games should be created by
+     * {@link #loadBoard(String)}, which shares the layout of the board.
+     *
+     * @param boardname the name of the board
+     * @return the board, or null if there is no such file or it could not be read
+     */
+    public static Board readBoard(String boardname) {
         ClassLoader classLoader = LoadBoard.class.getClassLoader();
         InputStream inputStream = classLoader.getResourceAsStream(BOARDSFOLDER + "/" + boardname + "." + JSON_EXT);
         if (inputStream == null) {
-            return BoardFactory.getInstance().createBoard(boardname);
+            return null;
         }
 
 		// In simple cases, we can create a Gson object with new Gson():
@@ -96,6 +116,9 @@ public class LoadBoard {
 
     private static Board convert(BoardTemplate template, String boardname) {
         Board result = new Board(template.width, template.height, boardname);
+        if (template.deck != null && !template.deck.isEmpty()) {
+            result.setDeckComposition(template.deck);
+        }
         for (SpaceTemplate spaceTemplate: template.spaces) {
             Space space = result.getSpace(spaceTemplate.x, spaceTemplate.y);
             if (space != null) {
@@ -189,6 +212,9 @@ public class LoadBoard {
         BoardTemplate result = new BoardTemplate();
         result.width = board.width;
         result.height = board.height;
+        if (board.getDeckComposition() != Deck.DEFAULT_COMPOSITION) {
+            result.deck = new ArrayList<>(board.getDeckComposition());
+        }
 
         for (int x = 0; x < board.width; x++) {
             for (int y= 0; y < board.height; y++) {
@@ -21,6 +21,8 @@
  */
 package dk.dtu.compute.se.pisd.roborally.fileaccess.model;
 
+import dk.dtu.compute.se.pisd.roborally.model.Command;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,4 +40,7 @@ public class BoardTemplate {
 
     public List<SpaceTemplate> spaces = new ArrayList<>();
 
+    // optional; if not given, the default composition of the decks is used
+    public List<Command> deck;
+
 }
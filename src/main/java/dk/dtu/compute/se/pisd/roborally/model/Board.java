@@ -25,7 +25,11 @@ import dk.dtu.compute.se.pisd.designpatterns.observer.Subject;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static dk.dtu.compute.se.pisd.roborally.model.Phase.INITIALISATION;
 
@@ -47,11 +51,40 @@ public class Board extends Subject {
 
     private Integer gameId;
 
-    private final Space[][] spaces;
+    /**
+     * The neighbours of all spaces in all directions, compiled from the walls:
+     * the entry <code>index * 4 + heading.ordinal()</code> is the index of the
+     * neighbour of the space with the given index (see {@link #getIndex(Space)}),
+     * or -1 if the neighbour cannot be reached. The table is computed lazily, and
+     * is recomputed when the walls of some space change.
+     */
+    private int[] neighbours;
+
+    // the spaces of this board by their index; on a shared layout, the
+    // spaces are created only when they are needed first (see getSpace)
+    private final Space[] cells;
+
+    /**
+     * The index of the spaces with field actions: the entry for the index of a
+     * space (see {@link #getIndex(Space)}) is the position of that space in the
+     * order in which the field actions are executed (column by column), or -1
+     * if there are no field actions on that space. The index is computed lazily,
+     * and is recomputed when the actions of some space change.
+     */
+    private int[] actionOrder;
+
+    private Space[] actionSpaces;
+
+    private int layoutVersion;
+
+    // the shared layout this board was created from, or null if the walls
+    // and field actions are owned by (and can be changed on) this board
+    private final BoardLayout layout;
 
     private final List<Player> players = new ArrayList<>();
 
-    private Player current;
+    // the number of the current player, -1 if there is none
+    private int current = -1;
 
     private Phase phase = INITIALISATION;
 
@@ -61,24 +94,139 @@ public class Board extends Subject {
 
     private boolean stepMode;
 
+    private List<Command> deckComposition = Deck.DEFAULT_COMPOSITION;
+
+    private long seed;
+
+    // the Zobrist hash of the state of the game, which is updated
+    // incrementally by the setters of the board and its players
+    private long hash = Zobrist.phase(INITIALISATION) ^ Zobrist.step(0);
+
+    private SplittableRandom random;
+
+    /**
+     * The bit of {@link #getChanges()} for a change of the current player.
+     */
+    public static final int CHANGED_CURRENT_PLAYER = 1;
+
+    /**
+     * The bit of {@link #getChanges()} for a change of the phase.
+     */
+    public static final int CHANGED_PHASE = 1 << 1;
+
+    /**
+     * The bit of {@link #getChanges()} for a change of the step.
+     */
+    public static final int CHANGED_STEP = 1 << 2;
+
+    private int changes = 0;
+
     public Board(int width, int height, @NotNull String boardName) {
         this.boardName = boardName;
         this.width = width;
         this.height = height;
-        spaces = new Space[width][height];
+        this.layout = null;
+        cells = new Space[width * height];
         for (int x = 0; x < width; x++) {
             for(int y = 0; y < height; y++) {
-                Space space = new Space(this, x, y);
-                spaces[x][y] = space;
+                cells[y * width + x] = new Space(this, x, y);
             }
         }
         this.stepMode = false;
+        setSeed(ThreadLocalRandom.current().nextLong());
     }
 
     public Board(int width, int height) {
         this(width, height, "defaultboard");
     }
 
+    /**
+     * Creates a board for a new game on the given shared layout. The walls
+     * and field actions of the spaces of this board are the ones of the layout
+     * and cannot be changed, and the tables compiled from them (neighbours and
+     * order of the field actions) are the ones of the layout. Only the state
+     * of the game is allocated for this board: a reference for each space,
+     * and the spaces themselves when they are needed (e.g. when a player is
+     * put on them).
+     *
+     * @param layout the layout of the board
+     */
+    public Board(@NotNull BoardLayout layout) {
+        this.boardName = layout.boardName;
+        this.width = layout.width;
+        this.height = layout.height;
+        this.layout = layout;
+        cells = new Space[width * height];
+        neighbours = layout.getNeighbours();
+        actionOrder = layout.getActionOrder();
+        deckComposition = layout.getDeckComposition();
+        this.stepMode = false;
+        setSeed(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Returns the shared layout this board was created from; the result is
+     * null, if the walls and field actions belong to this board only.
+     *
+     * @return the shared layout of this board, or null
+     */
+    public BoardLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Returns the seed of the random generator of this game. A game can be
+     * replayed exactly, when its board is created with the same seed (and the
+     * same choices are made by the players).
+     *
+     * @return the seed of the random generator
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the seed of the random generator of this game; this resets the
+     * random generator.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Returns the random generator of this game, which is used for dealing
+     * the cards. Each game has its own generator, so that games which run in
+     * parallel do not compete for a shared generator. Note that the generator
+     * is not thread-safe; it must be used by the thread running the game only.
+     *
+     * @return the random generator of this game
+     */
+    public SplittableRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * Returns the commands of the cards in the deck of each player on this board.
+     *
+     * @return the composition of the decks
+     */
+    public List<Command> getDeckComposition() {
+        return deckComposition;
+    }
+
+    /**
+     * Sets the commands of the cards in the deck of each player on this board.
+     * This must be done before the players are dealt their first cards.
+     *
+     * @param deckComposition the composition of the decks
+     */
+    public void setDeckComposition(@NotNull List<Command> deckComposition) {
+        this.deckComposition = Collections.unmodifiableList(new ArrayList<>(deckComposition));
+    }
+
     public Integer getGameId() {
         return gameId;
     }
@@ -96,19 +244,78 @@ public class Board extends Subject {
     public Space getSpace(int x, int y) {
         if (x >= 0 && x < width &&
                 y >= 0 && y < height) {
-            return spaces[x][y];
+            return getSpace(y * width + x);
         } else {
             return null;
         }
     }
 
+    /**
+     * Returns the space with the given index, where the spaces are numbered
+     * row by row.
+     *
+     * @param index the index of the space
+     * @return the space with the given index
+     */
+    public Space getSpace(int index) {
+        Space space = cells[index];
+        if (space == null) {
+            // only boards on a shared layout create their spaces lazily
+            space = new Space(this, index % width, index / width, layout);
+            cells[index] = space;
+        }
+        return space;
+    }
+
+    /**
+     * Returns the walls of the space with the given index as a bitmask (see
+     * {@link Space#getWallMask()}); other than going through the space, this
+     * does not create the space on a board with a shared layout.
+     *
+     * @param index the index of the space
+     * @return the bitmask of the walls of the space
+     */
+    public int getWallMask(int index) {
+        return layout != null ? layout.getWallMask(index) : cells[index].getWallMask();
+    }
+
+    // the number of spaces created for this board so far
+    int getCreatedSpaces() {
+        int result = 0;
+        for (Space space: cells) {
+            if (space != null) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    int[] getNeighbours() {
+        return neighbours;
+    }
+
+    /**
+     * Returns the index of the given space on this board, where the spaces
+     * are numbered row by row.
+     *
+     * @param space the space
+     * @return the index of the space
+     */
+    public int getIndex(@NotNull Space space) {
+        return space.y * width + space.x;
+    }
+
     public int getPlayersNumber() {
         return players.size();
     }
 
     public void addPlayer(@NotNull Player player) {
-        if (player.board == this && !players.contains(player)) {
+        // the number of a player is set when it is added, so that it
+        // can be looked up without searching the list of players
+        if (player.board == this && player.number < 0) {
+            player.number = players.size();
             players.add(player);
+            hash ^= player.getHash();
             notifyChange();
         }
     }
@@ -122,12 +329,23 @@ public class Board extends Subject {
     }
 
     public Player getCurrentPlayer() {
+        return current >= 0 ? players.get(current) : null;
+    }
+
+    /**
+     * Returns the number of the current player (see {@link #getPlayerNumber(Player)}),
+     * or -1 if there is no current player.
+     *
+     * @return the number of the current player
+     */
+    public int getCurrentPlayerNumber() {
         return current;
     }
 
     public void setCurrentPlayer(Player player) {
-        if (player != this.current && players.contains(player)) {
-            this.current = player;
+        if (player != null && player.board == this && player.number >= 0 && player.number != current) {
+            this.current = player.number;
+            changes |= CHANGED_CURRENT_PLAYER;
             notifyChange();
         }
     }
@@ -138,7 +356,9 @@ public class Board extends Subject {
 
     public void setPhase(Phase phase) {
         if (phase != this.phase) {
+            hash ^= Zobrist.phase(this.phase) ^ Zobrist.phase(phase);
             this.phase = phase;
+            changes |= CHANGED_PHASE;
             notifyChange();
         }
     }
@@ -149,7 +369,9 @@ public class Board extends Subject {
 
     public void setStep(int step) {
         if (step != this.step) {
+            hash ^= Zobrist.step(this.step) ^ Zobrist.step(step);
             this.step = step;
+            changes |= CHANGED_STEP;
             notifyChange();
         }
     }
@@ -165,9 +387,51 @@ public class Board extends Subject {
         }
     }
 
+    /**
+     * Returns the Zobrist hash of the state of the game on this board (see
+     * {@link Zobrist}): the spaces, headings and checkpoints of the players,
+     * and the phase and step. The hash is maintained incrementally, so this
+     * method takes constant time. Equal states have equal hashes; different
+     * states have different hashes with high probability only.
+     *
+     * @return the hash of the state of the game
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Returns the attributes of this game which changed since the changes
+     * were cleared last (see {@link #clearChanges()}), as a combination of
+     * the bits {@link #CHANGED_CURRENT_PLAYER}, {@link #CHANGED_PHASE} and
+     * {@link #CHANGED_STEP}. The changes of the players are tracked by the
+     * players (see {@link Player#getChanges()}). This is used for saving
+     * only what changed since the game was saved last.
+     *
+     * @return the changes of this game
+     */
+    public int getChanges() {
+        return changes;
+    }
+
+    /**
+     * Clears the changes of this game and of all its players, which is done
+     * when the game was saved.
+     */
+    public void clearChanges() {
+        changes = 0;
+        for (Player player: players) {
+            player.clearChanges();
+        }
+    }
+
+    void playerChanged(long delta) {
+        hash ^= delta;
+    }
+
     public int getPlayerNumber(@NotNull Player player) {
         if (player.board == this) {
-            return players.indexOf(player);
+            return player.number;
         } else {
             return -1;
         }
@@ -195,31 +459,212 @@ public class Board extends Subject {
      * @return the space in the given direction; null if there is no (reachable) neighbour
      */
     public Space getNeighbour(@NotNull Space space, @NotNull Heading heading) {
-        int x = space.x;
-        int y = space.y;
+        int neighbour = getNeighbour(space.y * width + space.x, heading);
+        return neighbour >= 0 ? getSpace(neighbour) : null;
+    }
+
+    /**
+     * Returns the index of the neighbour of the space with the given index
+     * in the given heading; the result is -1, if the neighbour cannot be reached
+     * (see {@link #getNeighbour(Space, Heading)}).
+     *
+     * @param index the index of the space
+     * @param heading the heading of the neighbour
+     * @return the index of the neighbour; -1 if there is no (reachable) neighbour
+     */
+    public int getNeighbour(int index, @NotNull Heading heading) {
+        int[] table = neighbours;
+        if (table == null) {
+            table = compileNeighbours();
+        }
+        return table[(index << 2) + heading.ordinal()];
+    }
+
+    private int[] compileNeighbours() {
+        Heading[] headings = Heading.values();
+        int[] table = new int[width * height * headings.length];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int index = y * width + x;
+                Space space = cells[index];
+                for (Heading heading: headings) {
+                    int nx = x;
+                    int ny = y;
+                    switch (heading) {
+                        case SOUTH:
+                            ny = (y + 1) % height;
+                            break;
+                        case WEST:
+                            nx = (x + width - 1) % width;
+                            break;
+                        case NORTH:
+                            ny = (y + height - 1) % height;
+                            break;
+                        case EAST:
+                            nx = (x + 1) % width;
+                            break;
+                    }
+                    Space newSpace = cells[ny * width + nx];
+                    if (space.hasWall(heading) || newSpace.hasWall(heading.next().next())) {
+                        table[(index << 2) + heading.ordinal()] = -1;
+                    } else {
+                        table[(index << 2) + heading.ordinal()] = ny * width + nx;
+                    }
+                }
+            }
+        }
+        neighbours = table;
+        return table;
+    }
+
+    /**
+     * Called by the spaces of this board when their walls change, so that
+     * the table of neighbours is recomputed.
+     */
+    void wallsChanged() {
+        neighbours = null;
+        layoutVersion++;
+    }
 
-        if (space.getWalls().contains(heading)) {return null;}  //Checks whether current space has wall
+    /**
+     * Returns the version of the layout of this board, which changes whenever
+     * a wall or a field action of a space of this board changes (it never
+     * changes for a board on a shared {@link BoardLayout}). Structures
+     * which are compiled from the layout (like the
+     * {@link dk.dtu.compute.se.pisd.roborally.engine.ConveyorGraph}) use it for
+     * finding out whether they need to be compiled again.
+     *
+     * @return the version of the layout
+     */
+    public int getLayoutVersion() {
+        return layoutVersion;
+    }
 
-        switch (heading) {
-            case SOUTH:
-                y = (y + 1) % height;
-                break;
-            case WEST:
-                x = (x + width - 1) % width;
-                break;
-            case NORTH:
-                y = (y + height - 1) % height;
-                break;
-            case EAST:
-                x = (x + 1) % width;
-                break;
+    /**
+     * Returns the position of the given space in the order in which the field
+     * actions of the board are executed (column by column); the result is -1,
+     * if there are no field actions on that space.
+     *
+     * @param space the space
+     * @return the position of the space in the order of the field actions, or -1
+     */
+    public int getActionOrder(@NotNull Space space) {
+        int[] order = actionOrder;
+        if (order == null) {
+            order = compileActions();
         }
+        return order[space.y * width + space.x];
+    }
 
-        Space newSpace = getSpace(x,y);
+    /**
+     * Returns all spaces with field actions in the order in which their field
+     * actions are executed (column by column).
+     *
+     * @return the spaces with field actions
+     */
+    public List<Space> getActionSpaces() {
+        if (actionOrder == null) {
+            compileActions();
+        }
+        Space[] result = actionSpaces;
+        if (result == null) {
+            // on a shared layout, the spaces are created when needed first
+            int[] actionCells = layout.getActionCells();
+            result = new Space[actionCells.length];
+            for (int i = 0; i < actionCells.length; i++) {
+                result[i] = getSpace(actionCells[i]);
+            }
+            actionSpaces = result;
+        }
+        return Collections.unmodifiableList(Arrays.asList(result));
+    }
 
-        if (newSpace.getWalls().contains(heading.next().next())) {return null;}     //Checks whether next space has wall
+    private int[] compileActions() {
+        int[] order = new int[width * height];
+        List<Space> result = new ArrayList<>();
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                Space space = cells[y * width + x];
+                if (space.getActions().isEmpty()) {
+                    order[y * width + x] = -1;
+                } else {
+                    order[y * width + x] = result.size();
+                    result.add(space);
+                }
+            }
+        }
+        actionSpaces = result.toArray(new Space[0]);
+        actionOrder = order;
+        return order;
+    }
+
+    /**
+     * Called by the spaces of this board when their field actions change, so
+     * that the index of the spaces with field actions is recomputed.
+     */
+    void actionsChanged() {
+        actionOrder = null;
+        layoutVersion++;
+    }
 
-        return newSpace;
+    /**
+     * Takes a snapshot of the mutable state of this board (the players'
+     * positions, headings and checkpoints, the phase, step, current player,
+     * counter and winner). The spaces of the board are not copied.
+     *
+     * @return the snapshot
+     */
+    public BoardSnapshot snapshot() {
+        return new BoardSnapshot(this);
+    }
+
+    /**
+     * Restores the state of this board to the given snapshot, which must have
+     * been taken from this board, and with the same players. Only the players
+     * whose state differs from the snapshot are changed; the notifications of
+     * the observers are sent as one batch.
+     *
+     * @param snapshot the snapshot
+     */
+    public void restore(@NotNull BoardSnapshot snapshot) {
+        if (snapshot.board != this || snapshot.positions.length != players.size()) {
+            throw new IllegalArgumentException("The snapshot was not taken from this board!");
+        }
+        Heading[] headings = Heading.values();
+        beginBatch();
+        try {
+            // first remove all moved players from their spaces, so that a
+            // player never is put on a space that is still occupied
+            for (int i = 0; i < players.size(); i++) {
+                Player player = players.get(i);
+                Space space = player.getSpace();
+                if (space != null && getIndex(space) != snapshot.positions[i]) {
+                    player.setSpace(null);
+                }
+            }
+            for (int i = 0; i < players.size(); i++) {
+                Player player = players.get(i);
+                int position = snapshot.positions[i];
+                if (position >= 0) {
+                    player.setSpace(getSpace(position));
+                }
+                player.setHeading(headings[snapshot.headings[i]]);
+                player.setCurrentCheckpoint(snapshot.checkpoints[i]);
+            }
+            setPhase(snapshot.phase);
+            setStep(snapshot.step);
+            if (snapshot.current >= 0) {
+                setCurrentPlayer(players.get(snapshot.current));
+            } else if (current >= 0) {
+                current = -1;
+                changes |= CHANGED_CURRENT_PLAYER;
+                notifyChange();
+            }
+            setCounter(snapshot.counter);
+            setWinner(snapshot.winner >= 0 ? players.get(snapshot.winner) : null);
+        } finally {
+            commitBatch();
+        }
     }
 
     public String getStatusMessage() {
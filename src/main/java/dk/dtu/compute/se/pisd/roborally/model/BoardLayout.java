@@ -0,0 +1,201 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.model;
+
+import dk.dtu.compute.se.pisd.roborally.controller.Checkpoint;
+import dk.dtu.compute.se.pisd.roborally.controller.FieldAction;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The static layer of a board: its dimensions, the walls and field actions
+ * of its spaces, and the tables which are compiled from them (neighbours,
+ * order of the field actions and the cells of the checkpoints). A layout is
+ * immutable, so that it can be shared by all games which are played on the
+ * same board; such games only allocate their mutable state (the players and
+ * the spaces they are on, see {@link Board#Board(BoardLayout)}).<p></p>
+ *
+ * A layout is created from a board which was set up with walls and field
+ * actions (see {@link #of(Board)}); the field actions of that board are then
+ * shared by all games, and must not be changed anymore.
+ *
+ */
+public final class BoardLayout {
+
+    public final int width;
+
+    public final int height;
+
+    public final String boardName;
+
+    private final List<Command> deckComposition;
+
+    private final List<Heading>[] walls;
+
+    private final List<FieldAction>[] actions;
+
+    private final int[] wallMasks;
+
+    // see Board.getNeighbour(int, Heading)
+    private final int[] neighbours;
+
+    // see Board.getActionOrder(Space)
+    private final int[] actionOrder;
+
+    private final int[] actionCells;
+
+    // the cell of each checkpoint by its number, -1 for missing numbers
+    private final int[] checkpointCells;
+
+    private BoardLayout(Board board) {
+        width = board.width;
+        height = board.height;
+        boardName = board.boardName;
+        deckComposition = board.getDeckComposition();
+
+        int cells = width * height;
+        walls = newLists(cells);
+        actions = newLists(cells);
+        wallMasks = new int[cells];
+        neighbours = new int[cells << 2];
+        actionOrder = new int[cells];
+        Heading[] headings = Heading.values();
+        int numbers = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            Space space = board.getSpace(cell);
+            walls[cell] = List.copyOf(space.getWalls());
+            actions[cell] = List.copyOf(space.getActions());
+            wallMasks[cell] = space.getWallMask();
+            for (Heading heading: headings) {
+                neighbours[(cell << 2) + heading.ordinal()] = board.getNeighbour(cell, heading);
+            }
+            actionOrder[cell] = board.getActionOrder(space);
+            for (FieldAction action: actions[cell]) {
+                if (action instanceof Checkpoint) {
+                    numbers = Math.max(numbers, ((Checkpoint) action).getNumber());
+                }
+            }
+        }
+
+        List<Space> spaces = board.getActionSpaces();
+        actionCells = new int[spaces.size()];
+        checkpointCells = new int[numbers + 1];
+        Arrays.fill(checkpointCells, -1);
+        for (int i = 0; i < actionCells.length; i++) {
+            int cell = board.getIndex(spaces.get(i));
+            actionCells[i] = cell;
+            for (FieldAction action: actions[cell]) {
+                if (action instanceof Checkpoint) {
+                    int number = ((Checkpoint) action).getNumber();
+                    if (number >= 0 && checkpointCells[number] < 0) {
+                        checkpointCells[number] = cell;
+                    }
+                }
+            }
+        }
+    }
+
+    // arrays of a generic type cannot be created directly
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> List<T>[] newLists(int size) {
+        return new List[size];
+    }
+
+    /**
+     * Returns the layout of the given board. If the board is played on a
+     * shared layout already, this layout is returned; otherwise, the current
+     * walls and field actions of the board are copied into a new layout.
+     *
+     * @param board the board
+     * @return the layout of the board
+     */
+    public static BoardLayout of(@NotNull Board board) {
+        BoardLayout layout = board.getLayout();
+        return layout != null ? layout : new BoardLayout(board);
+    }
+
+    public List<Command> getDeckComposition() {
+        return deckComposition;
+    }
+
+    /**
+     * Returns the walls of the space with the given index (as an unmodifiable
+     * list).
+     *
+     * @param index the index of the space
+     * @return the walls of the space
+     */
+    public List<Heading> getWalls(int index) {
+        return walls[index];
+    }
+
+    /**
+     * Returns the field actions of the space with the given index (as an
+     * unmodifiable list).
+     *
+     * @param index the index of the space
+     * @return the field actions of the space
+     */
+    public List<FieldAction> getActions(int index) {
+        return actions[index];
+    }
+
+    public int getWallMask(int index) {
+        return wallMasks[index];
+    }
+
+    /**
+     * Returns the index of the cell of the checkpoint with the given number,
+     * or -1 if there is no such checkpoint on this layout.
+     *
+     * @param number the number of the checkpoint
+     * @return the cell of the checkpoint, or -1
+     */
+    public int getCheckpointCell(int number) {
+        return number >= 0 && number < checkpointCells.length ? checkpointCells[number] : -1;
+    }
+
+    /**
+     * Returns the highest number of a checkpoint on this layout (0 if there
+     * are no checkpoints).
+     *
+     * @return the highest number of a checkpoint
+     */
+    public int getCheckpoints() {
+        return checkpointCells.length - 1;
+    }
+
+    int[] getNeighbours() {
+        return neighbours;
+    }
+
+    int[] getActionOrder() {
+        return actionOrder;
+    }
+
+    int[] getActionCells() {
+        return actionCells;
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.model;
+
+/**
+ * An immutable snapshot of the mutable state of a {@link Board}: the
+ * positions, headings and checkpoints of the players, the phase, the step,
+ * the current player, the move counter and the winner. The layout of the
+ * board (its spaces, walls and field actions) is not part of the snapshot,
+ * so that taking a snapshot and restoring it costs time linear in the number
+ * of players only. This way, a bot can try out moves on the board and undo
+ * them afterwards.<p></p>
+ *
+ * Snapshots are created by {@link Board#snapshot()} and restored by
+ * {@link Board#restore(BoardSnapshot)}.
+ *
+ */
+public final class BoardSnapshot {
+
+    final Board board;
+
+    // the index of the space of each player (-1 if the player is not on the board)
+    final int[] positions;
+
+    final byte[] headings;
+
+    final int[] checkpoints;
+
+    final Phase phase;
+
+    final int step;
+
+    final int current;
+
+    final int counter;
+
+    final int winner;
+
+    BoardSnapshot(Board board) {
+        this.board = board;
+        int players = board.getPlayersNumber();
+        positions = new int[players];
+        headings = new byte[players];
+        checkpoints = new int[players];
+        for (int i = 0; i < players; i++) {
+            Player player = board.getPlayer(i);
+            Space space = player.getSpace();
+            positions[i] = space != null ? board.getIndex(space) : -1;
+            headings[i] = (byte) player.getHeading().ordinal();
+            checkpoints[i] = player.getCurrentCheckpoint();
+        }
+        phase = board.getPhase();
+        step = board.getStep();
+        current = board.getCurrentPlayerNumber();
+        counter = board.getCounter();
+        winner = board.getWinner() != null ? board.getPlayerNumber(board.getWinner()) : -1;
+    }
+
+    public int getPlayersNumber() {
+        return positions.length;
+    }
+
+    /**
+     * Returns the index of the space (see {@link Board#getIndex(Space)}) of the
+     * given player in this snapshot.
+     *
+     * @param player the number of the player
+     * @return the index of the space of the player (-1 if the player was not on the board)
+     */
+    public int getPosition(int player) {
+        return positions[player];
+    }
+
+    public Heading getHeading(int player) {
+        return Heading.values()[headings[player]];
+    }
+
+    public int getCheckpoint(int player) {
+        return checkpoints[player];
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+}
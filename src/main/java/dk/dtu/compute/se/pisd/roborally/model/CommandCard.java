@@ -32,6 +32,26 @@ import org.jetbrains.annotations.NotNull;
  */
 public class CommandCard extends Subject {
 
+    private static final CommandCard[] CARDS = new CommandCard[Command.values().length];
+
+    static {
+        for (Command command: Command.values()) {
+            CARDS[command.ordinal()] = new CommandCard(command);
+        }
+    }
+
+    /**
+     * Returns the shared card for the given command. Since a card is nothing
+     * more than its (immutable) command, the same card object can be used
+     * for all cards with the same command in all games.
+     *
+     * @param command the command
+     * @return the card for the command
+     */
+    public static CommandCard valueOf(@NotNull Command command) {
+        return CARDS[command.ordinal()];
+    }
+
     final public Command command;
 
     public CommandCard(@NotNull Command command) {
@@ -50,6 +50,7 @@ public class CommandCardField extends Subject {
     public void setCard(CommandCard card) {
         if (card != this.card) {
             this.card = card;
+            player.fieldChanged(this);
             notifyChange();
         }
     }
@@ -61,6 +62,7 @@ public class CommandCardField extends Subject {
     public void setVisible(boolean visible) {
         if (visible != this.visible) {
             this.visible = visible;
+            player.fieldChanged(this);
             notifyChange();
         }
     }
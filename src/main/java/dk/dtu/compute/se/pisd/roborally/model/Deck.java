@@ -0,0 +1,131 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.model;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * The deck of command cards of a player, consisting of a draw pile and a
+ * discard pile. Cards are drawn at random from the draw pile; when the draw
+ * pile is empty, the cards of the discard pile are shuffled back into the
+ * draw pile. The piles only store the commands of the cards (the cards
+ * themselves are the shared instances of {@link CommandCard#valueOf(Command)}),
+ * so that drawing and discarding cards does not allocate any objects.
+ *
+ */
+public class Deck {
+
+    /**
+     * The default composition of a deck: four cards of each command.
+     */
+    public static final List<Command> DEFAULT_COMPOSITION;
+
+    static {
+        List<Command> composition = new ArrayList<>();
+        for (Command command: Command.values()) {
+            for (int i = 0; i < 4; i++) {
+                composition.add(command);
+            }
+        }
+        DEFAULT_COMPOSITION = Collections.unmodifiableList(composition);
+    }
+
+    private static final Command[] COMMANDS = Command.values();
+
+    private byte[] drawPile;
+    private int drawSize;
+
+    private byte[] discardPile;
+    private int discardSize;
+
+    /**
+     * Creates a deck with the given cards, which are all on the draw pile.
+     *
+     * @param composition the commands of the cards of the deck
+     */
+    public Deck(@NotNull List<Command> composition) {
+        drawPile = new byte[composition.size()];
+        for (Command command: composition) {
+            drawPile[drawSize++] = (byte) command.ordinal();
+        }
+        discardPile = new byte[drawPile.length];
+    }
+
+    /**
+     * Draws a random card from the draw pile, reshuffling the discard pile
+     * into the draw pile, if the draw pile is empty. If there are no cards
+     * at all, null is returned.
+     *
+     * @param random the random generator of the game
+     * @return the drawn card, or null if the deck is empty
+     */
+    public CommandCard draw(@NotNull SplittableRandom random) {
+        if (drawSize == 0) {
+            reshuffle();
+            if (drawSize == 0) {
+                return null;
+            }
+        }
+        // taking a random card from the pile is the same as shuffling
+        // the pile and taking the top card
+        int i = random.nextInt(drawSize);
+        byte command = drawPile[i];
+        drawPile[i] = drawPile[--drawSize];
+        return CommandCard.valueOf(COMMANDS[command]);
+    }
+
+    /**
+     * Puts the given card on the discard pile.
+     *
+     * @param card the card
+     */
+    public void discard(@NotNull CommandCard card) {
+        if (discardSize == discardPile.length) {
+            discardPile = Arrays.copyOf(discardPile, 2 * discardPile.length + 1);
+        }
+        discardPile[discardSize++] = (byte) card.command.ordinal();
+    }
+
+    private void reshuffle() {
+        if (drawPile.length < drawSize + discardSize) {
+            drawPile = Arrays.copyOf(drawPile, drawSize + discardSize);
+        }
+        System.arraycopy(discardPile, 0, drawPile, drawSize, discardSize);
+        drawSize += discardSize;
+        discardSize = 0;
+    }
+
+    public int getDrawPileSize() {
+        return drawSize;
+    }
+
+    public int getDiscardPileSize() {
+        return discardSize;
+    }
+
+}
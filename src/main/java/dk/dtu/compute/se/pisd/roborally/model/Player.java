@@ -50,6 +50,39 @@ public class Player extends Subject {
     private CommandCardField[] program;
     private CommandCardField[] cards;
 
+    private Deck deck;
+
+    // the number of this player on the board, which is set when the player
+    // is added to the board (-1 before); it is used for the keys of the hash
+    int number = -1;
+
+    /**
+     * The bit of {@link #getChanges()} for a change of the space.
+     */
+    public static final int CHANGED_SPACE = 1;
+
+    /**
+     * The bit of {@link #getChanges()} for a change of the heading.
+     */
+    public static final int CHANGED_HEADING = 1 << 1;
+
+    /**
+     * The bit of {@link #getChanges()} for a change of the checkpoint.
+     */
+    public static final int CHANGED_CHECKPOINT = 1 << 2;
+
+    /**
+     * The bit of {@link #getChanges()} for a change of the program fields.
+     */
+    public static final int CHANGED_PROGRAM = 1 << 3;
+
+    /**
+     * The bit of {@link #getChanges()} for a change of the card fields.
+     */
+    public static final int CHANGED_CARDS = 1 << 4;
+
+    private int changes = 0;
+
     public Player(@NotNull Board board, String color, @NotNull String name) {
         this.board = board;
         this.name = name;
@@ -101,6 +134,10 @@ public class Player extends Subject {
     }
     
     public void setCurrentCheckpoint(int checkpoint) {
+        if (checkpoint != this.currentCheckpoint) {
+            rehash(Zobrist.checkpoint(number, currentCheckpoint) ^ Zobrist.checkpoint(number, checkpoint));
+            changes |= CHANGED_CHECKPOINT;
+        }
     	this.currentCheckpoint = checkpoint;
     }
 
@@ -112,7 +149,10 @@ public class Player extends Subject {
         Space oldSpace = this.space;
         if (space != oldSpace &&
                 (space == null || space.board == this.board)) {
+            rehash(Zobrist.space(number, oldSpace != null ? board.getIndex(oldSpace) : -1)
+                    ^ Zobrist.space(number, space != null ? board.getIndex(space) : -1));
             this.space = space;
+            changes |= CHANGED_SPACE;
             if (oldSpace != null) {
                 oldSpace.setPlayer(null);
             }
@@ -123,13 +163,32 @@ public class Player extends Subject {
         }
     }
 
+    /**
+     * Returns the part of the hash of the board (see {@link Board#getHash()}),
+     * which represents the space, heading and checkpoint of this player.
+     *
+     * @return the hash of the player's state
+     */
+    long getHash() {
+        return Zobrist.player(number, space != null ? board.getIndex(space) : -1,
+                heading.ordinal(), currentCheckpoint);
+    }
+
+    private void rehash(long delta) {
+        if (number >= 0) {
+            board.playerChanged(delta);
+        }
+    }
+
     public Heading getHeading() {
         return heading;
     }
 
     public void setHeading(@NotNull Heading heading) {
         if (heading != this.heading) {
+            rehash(Zobrist.heading(number, this.heading.ordinal()) ^ Zobrist.heading(number, heading.ordinal()));
             this.heading = heading;
+            changes |= CHANGED_HEADING;
             notifyChange();
             if (space != null) {
                 space.playerChanged();
@@ -137,6 +196,37 @@ public class Player extends Subject {
         }
     }
 
+    /**
+     * Returns the attributes of this player which changed since the changes
+     * were cleared last, as a combination of the <code>CHANGED_</code> bits
+     * of this class (see {@link Board#getChanges()}).
+     *
+     * @return the changes of this player
+     */
+    public int getChanges() {
+        return changes;
+    }
+
+    public void clearChanges() {
+        changes = 0;
+    }
+
+    /**
+     * Called by the command card fields of this player when their card or
+     * visibility changes.
+     *
+     * @param field the field that changed
+     */
+    void fieldChanged(CommandCardField field) {
+        for (CommandCardField programField: program) {
+            if (programField == field) {
+                changes |= CHANGED_PROGRAM;
+                return;
+            }
+        }
+        changes |= CHANGED_CARDS;
+    }
+
     public CommandCardField getProgramField(int i) {
         return program[i];
     }
@@ -145,4 +235,17 @@ public class Player extends Subject {
         return cards[i];
     }
 
+    /**
+     * Returns the deck of this player. The deck is created with the deck
+     * composition of the board, when it is needed for the first time.
+     *
+     * @return the deck of this player
+     */
+    public Deck getDeck() {
+        if (deck == null) {
+            deck = new Deck(board.getDeckComposition());
+        }
+        return deck;
+    }
+
 }
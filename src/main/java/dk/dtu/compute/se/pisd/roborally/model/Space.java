@@ -24,6 +24,7 @@ package dk.dtu.compute.se.pisd.roborally.model;
 import dk.dtu.compute.se.pisd.designpatterns.observer.Subject;
 import dk.dtu.compute.se.pisd.roborally.controller.FieldAction;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -44,16 +45,35 @@ public class Space extends Subject {
 
 
     // XXX A3
-    private List<Heading> walls = new ArrayList<>();
+    private final List<Heading> walls;
+
+    private int wallMask = 0;
 
     // XXX A3
-    private List<FieldAction> actions = new ArrayList<>();
+    private final List<FieldAction> actions;
 
     public Space(Board board, int x, int y) {
         this.board = board;
         this.x = x;
         this.y = y;
         player = null;
+        walls = new ChangeList<>(this::wallsChanged);
+        actions = new ChangeList<>(this::actionsChanged);
+    }
+
+    /**
+     * Creates a space of a board on a shared layout, which uses the walls and
+     * field actions of the layout.
+     */
+    Space(Board board, int x, int y, BoardLayout layout) {
+        this.board = board;
+        this.x = x;
+        this.y = y;
+        player = null;
+        int index = y * layout.width + x;
+        walls = layout.getWalls(index);
+        actions = layout.getActions(index);
+        wallMask = layout.getWallMask(index);
     }
 
     public Player getPlayer() {
@@ -80,7 +100,9 @@ public class Space extends Subject {
      * Returns the walls (actually their direction) on this space.
      * Note that clients may change this list; this should, however,
      * be done only during the setup of the game (not while the game
-     * is running).
+     * is running). The list cannot be changed,
+     * if the board of this space is on a shared layout (see
+     * {@link Board#getLayout()}).
      *
      * @return the list of walls on this space
      */
@@ -89,11 +111,36 @@ public class Space extends Subject {
         return walls;
     }
 
+    /**
+     * Returns whether there is a wall on this space in the given direction.
+     * Other than checking the list of walls, this does not need to iterate
+     * over that list.
+     *
+     * @param heading the direction
+     * @return true if there is a wall in the given direction
+     */
+    public boolean hasWall(Heading heading) {
+        return (wallMask & (1 << heading.ordinal())) != 0;
+    }
+
+    /**
+     * Returns the walls of this space as a bitmask, where the bit with the
+     * index of the ordinal of a heading is set, if there is a wall in that
+     * direction.
+     *
+     * @return the bitmask of the walls of this space
+     */
+    public int getWallMask() {
+        return wallMask;
+    }
+
     /**
      * Returns the list of field actions on this space.
      * Note that clients may change this list; this should, however,
      * be done only during the setup of the game (not while the game
-     * is running).
+     * is running). The list cannot be changed,
+     * if the board of this space is on a shared layout (see
+     * {@link Board#getLayout()}).
      *
      * @return the list of field actions on this space
      */
@@ -102,6 +149,68 @@ public class Space extends Subject {
         return actions;
     }
 
+    /**
+     * A list which informs this space (and its board) whenever it is changed.
+     * It is used for the walls and the field actions of a space, so that the
+     * bitmask of the walls and the tables that the board computes from the
+     * walls and actions are kept up to date.
+     */
+    private class ChangeList<E> extends AbstractList<E> {
+
+        private final List<E> list = new ArrayList<>(2);
+
+        private final Runnable onChange;
+
+        ChangeList(Runnable onChange) {
+            this.onChange = onChange;
+        }
+
+        @Override
+        public E get(int index) {
+            return list.get(index);
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        @Override
+        public E set(int index, E element) {
+            E result = list.set(index, element);
+            onChange.run();
+            return result;
+        }
+
+        @Override
+        public void add(int index, E element) {
+            list.add(index, element);
+            modCount++;
+            onChange.run();
+        }
+
+        @Override
+        public E remove(int index) {
+            E result = list.remove(index);
+            modCount++;
+            onChange.run();
+            return result;
+        }
+    }
+
+    private void actionsChanged() {
+        board.actionsChanged();
+    }
+
+    private void wallsChanged() {
+        int mask = 0;
+        for (int i = 0; i < walls.size(); i++) {
+            mask |= 1 << walls.get(i).ordinal();
+        }
+        wallMask = mask;
+        board.wallsChanged();
+    }
+
     void playerChanged() {
         // This is a minor hack; since some views that are registered with the space
         // also need to update when some player attributes change, the player can
@@ -0,0 +1,109 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.model;
+
+/**
+ * The keys of the Zobrist hash of the state of a game. Each feature of the
+ * state (the space, the heading and the checkpoint of each player, and the
+ * phase and step of the board) has a pseudo-random 64 bit key, and the hash
+ * of a state is the exclusive or of the keys of its features. Therefore, the
+ * hash can be updated incrementally whenever a single feature changes, by
+ * XOR-ing out the key of the old value and XOR-ing in the key of the new one
+ * (see {@link Board#getHash()}).<p></p>
+ *
+ * Instead of tables of random numbers, the keys are computed from the
+ * feature by a mixing function (the finalizer of SplitMix64), so that they
+ * do not depend on the size of the board and are the same in every run.
+ *
+ */
+public final class Zobrist {
+
+    private static final int SPACE = 1;
+    private static final int HEADING = 2;
+    private static final int CHECKPOINT = 3;
+    private static final int PHASE = 4;
+    private static final int STEP = 5;
+
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the key of the given player being on the given cell (see
+     * {@link Board#getIndex(Space)}). Not being on the board has the key 0.
+     *
+     * @param player the number of the player
+     * @param cell the index of the space, or -1 if the player is not on the board
+     * @return the key
+     */
+    public static long space(int player, int cell) {
+        return cell < 0 ? 0L : key(SPACE, player, cell);
+    }
+
+    public static long heading(int player, int heading) {
+        return key(HEADING, player, heading);
+    }
+
+    public static long checkpoint(int player, int checkpoint) {
+        return key(CHECKPOINT, player, checkpoint);
+    }
+
+    public static long phase(Phase phase) {
+        return key(PHASE, 0, phase.ordinal());
+    }
+
+    public static long step(int step) {
+        return key(STEP, 0, step);
+    }
+
+    /**
+     * Returns the hash of the features of a single player.
+     *
+     * @param player the number of the player
+     * @param cell the index of the space of the player, or -1 if none
+     * @param heading the ordinal of the heading of the player
+     * @param checkpoint the current checkpoint of the player
+     * @return the hash of the player
+     */
+    public static long player(int player, int cell, int heading, int checkpoint) {
+        return space(player, cell) ^ heading(player, heading) ^ checkpoint(player, checkpoint);
+    }
+
+    private static long key(int feature, int player, int value) {
+        return mix(((long) feature << 56) + ((long) player << 32) + (value & 0xffffffffL));
+    }
+
+    /**
+     * Mixes the bits of the given value into a pseudo-random key; this can be
+     * used for deriving keys of further features (e.g. of the cards in a hand),
+     * which are combined with the hash of a state.
+     *
+     * @param value the value
+     * @return the key of the value
+     */
+    public static long mix(long value) {
+        long z = value + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+}
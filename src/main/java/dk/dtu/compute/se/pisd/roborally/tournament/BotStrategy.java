@@ -0,0 +1,60 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.tournament;
+
+import dk.dtu.compute.se.pisd.roborally.engine.InteractionHandler;
+import dk.dtu.compute.se.pisd.roborally.model.Command;
+import dk.dtu.compute.se.pisd.roborally.model.Player;
+
+/**
+ * A strategy of a bot, which programs the registers of a player from the cards
+ * that were dealt to the player in the programming phase. Since there is no user
+ * in a simulated game, the strategy also decides on the options of interactive
+ * command cards; by default, it chooses the first option.<p></p>
+ *
+ * The same strategy object is used for many games that are run in parallel;
+ * therefore, implementations must be thread-safe (or better, stateless).
+ *
+ */
+public interface BotStrategy extends InteractionHandler {
+
+    /**
+     * Returns the name of this strategy, which is used in the results.
+     *
+     * @return the name of the strategy
+     */
+    String getName();
+
+    /**
+     * Programs the registers of the given player, by putting cards from the
+     * player's card fields into the player's program fields.
+     *
+     * @param player the player to be programmed
+     */
+    void program(Player player);
+
+    @Override
+    default Command choose(Player player, Command command) {
+        return Command.LEFT;
+    }
+
+}
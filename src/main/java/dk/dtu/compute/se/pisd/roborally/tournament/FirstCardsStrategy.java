@@ -0,0 +1,48 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.tournament;
+
+import dk.dtu.compute.se.pisd.roborally.model.CommandCardField;
+import dk.dtu.compute.se.pisd.roborally.model.Player;
+
+/**
+ * The simplest possible bot: it puts the first cards of its hand into the
+ * registers, in the order in which they were dealt.
+ *
+ */
+public class FirstCardsStrategy implements BotStrategy {
+
+    @Override
+    public String getName() {
+        return "First cards";
+    }
+
+    @Override
+    public void program(Player player) {
+        for (int i = 0; i < Player.NO_REGISTERS; i++) {
+            CommandCardField card = player.getCardField(i);
+            player.getProgramField(i).setCard(card.getCard());
+            card.setCard(null);
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.tournament;
+
+/**
+ * The result of a single game of a tournament.
+ *
+ */
+public class GameResult {
+
+    /**
+     * The number of the game within the tournament.
+     */
+    public final int game;
+
+    /**
+     * The seed of the board of the game, from which the game can be replayed.
+     */
+    public final long seed;
+
+    /**
+     * The number of the winning player, or -1 if the game was stopped
+     * before some player won.
+     */
+    public final int winner;
+
+    /**
+     * The number of registers that were executed in the game.
+     */
+    public final int registers;
+
+    /**
+     * The timings of the checkpoints: the entry <code>[i][j]</code> is the
+     * number of registers after which player i reached checkpoint j+1, or
+     * -1 if the player did not reach that checkpoint. The checkpoints are
+     * recorded after each round, so the timing is the end of the round in
+     * which the checkpoint was reached; only the winning checkpoint is
+     * recorded at the register in which the game was won.
+     */
+    public final int[][] checkpoints;
+
+    public GameResult(int game, long seed, int winner, int registers, int[][] checkpoints) {
+        this.game = game;
+        this.seed = seed;
+        this.winner = winner;
+        this.registers = registers;
+        this.checkpoints = checkpoints;
+    }
+
+    @Override
+    public String toString() {
+        return "Game " + game + ": winner = " + winner + ", registers = " + registers;
+    }
+
+}
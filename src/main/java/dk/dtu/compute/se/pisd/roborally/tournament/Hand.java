@@ -0,0 +1,147 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.tournament;
+
+import dk.dtu.compute.se.pisd.roborally.model.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The cards of a player, which a bot takes from the player's card fields
+ * and program fields for planning a program, and puts back into them
+ * when the program is chosen.
+ *
+ */
+final class Hand {
+
+    private final Player player;
+
+    private final List<CommandCard> cards = new ArrayList<>();
+
+    /**
+     * Takes all cards of the given player into a hand, i.e. the card fields and
+     * program fields of the player are emptied.
+     *
+     * @param player the player
+     */
+    Hand(@NotNull Player player) {
+        this.player = player;
+        for (int i = 0; i < Player.NO_CARDS; i++) {
+            take(player.getCardField(i));
+        }
+        for (int i = 0; i < Player.NO_REGISTERS; i++) {
+            take(player.getProgramField(i));
+        }
+    }
+
+    private void take(CommandCardField field) {
+        CommandCard card = field.getCard();
+        if (card != null) {
+            cards.add(card);
+            field.setCard(null);
+        }
+    }
+
+    int size() {
+        return cards.size();
+    }
+
+    /**
+     * Returns the number of registers that can be programmed from this hand.
+     */
+    int registers() {
+        return Math.min(Player.NO_REGISTERS, cards.size());
+    }
+
+    /**
+     * Returns the number of cards of each command (by its ordinal) in this hand.
+     */
+    int[] counts() {
+        int[] counts = new int[Command.values().length];
+        for (CommandCard card: cards) {
+            counts[card.command.ordinal()]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Puts the cards of the given program (commands by their ordinals) into the
+     * program fields of the player, and the remaining cards back into the card
+     * fields. If the program is shorter than the number of registers, the
+     * remaining registers get any of the remaining cards.
+     *
+     * @param program the commands of the program
+     * @param length the length of the program
+     */
+    void program(int[] program, int length) {
+        int registers = registers();
+        for (int i = 0; i < length && i < registers; i++) {
+            player.getProgramField(i).setCard(remove(Command.values()[program[i]]));
+        }
+        for (int i = length; i < registers; i++) {
+            player.getProgramField(i).setCard(cards.remove(0));
+        }
+        for (int i = 0; i < cards.size() && i < Player.NO_CARDS; i++) {
+            player.getCardField(i).setCard(cards.get(i));
+        }
+        cards.clear();
+    }
+
+    private CommandCard remove(Command command) {
+        for (int i = 0; i < cards.size(); i++) {
+            if (cards.get(i).command == command) {
+                return cards.remove(i);
+            }
+        }
+        throw new IllegalStateException("No card " + command + " in the hand!");
+    }
+
+    /**
+     * Returns the commands (by their ordinals) of all cards that the given
+     * player holds, in the card fields and in the program fields, without
+     * taking them.
+     *
+     * @param player the player
+     * @return the ordinals of the commands of the player's cards
+     */
+    static int[] peek(@NotNull Player player) {
+        int[] commands = new int[Player.NO_CARDS + Player.NO_REGISTERS];
+        int size = 0;
+        for (int i = 0; i < Player.NO_CARDS; i++) {
+            CommandCard card = player.getCardField(i).getCard();
+            if (card != null) {
+                commands[size++] = card.command.ordinal();
+            }
+        }
+        for (int i = 0; i < Player.NO_REGISTERS; i++) {
+            CommandCard card = player.getProgramField(i).getCard();
+            if (card != null) {
+                commands[size++] = card.command.ordinal();
+            }
+        }
+        return Arrays.copyOf(commands, size);
+    }
+
+}
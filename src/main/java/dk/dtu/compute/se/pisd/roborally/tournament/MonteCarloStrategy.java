@@ -0,0 +1,489 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.tournament;
+
+import dk.dtu.compute.se.pisd.roborally.engine.BoardState;
+import dk.dtu.compute.se.pisd.roborally.engine.Course;
+import dk.dtu.compute.se.pisd.roborally.engine.ProgramOutcomes;
+import dk.dtu.compute.se.pisd.roborally.model.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bot that chooses its program by Monte Carlo tree search (MCTS). Unlike
+ * the {@link PlannerStrategy}, it takes the other robots into account: in each
+ * iteration of the search, a plausible program is sampled for each opponent
+ * from the cards the opponent holds, and all robots execute their registers
+ * in turn (pushing each other), followed by the field actions of all robots,
+ * in the same way as in the game; if the robots are too far apart to interact
+ * during the round, the outcomes of their programs are looked up in the
+ * {@link ProgramOutcomes} of the board instead. The tree has a level for each register of
+ * the bot's own program; the outcome of an iteration is rated by the
+ * progress of the bot compared to the best opponent (or 1 if the bot wins,
+ * and 0 if an opponent wins).<p></p>
+ *
+ * The search runs for a given time budget on a given number of threads, each
+ * building its own tree (root parallelisation); the trees are merged for
+ * choosing the program, which follows the most visited commands. The random
+ * numbers of the search come from a generator of the strategy itself, so
+ * that the search does not change the cards that are dealt in the game; with
+ * a fixed seed and a fixed number of iterations, the plannings of a strategy
+ * can be replayed (when they are done in the same order).
+ *
+ */
+public class MonteCarloStrategy implements BotStrategy {
+
+    /**
+     * The default time budget of a planning in milliseconds.
+     */
+    public static final long DEFAULT_TIME_BUDGET = 100;
+
+    /**
+     * The default weight of the exploration term of the UCB1 selection.
+     */
+    public static final double DEFAULT_EXPLORATION = Math.sqrt(2);
+
+    private volatile long timeBudget = DEFAULT_TIME_BUDGET;
+
+    private volatile int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private volatile int maxIterations = Integer.MAX_VALUE;
+
+    private volatile double exploration = DEFAULT_EXPLORATION;
+
+    // guarded by itself; split for each planning
+    private final SplittableRandom random;
+
+    public MonteCarloStrategy() {
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Creates a strategy whose searches use random numbers derived from the
+     * given seed.
+     *
+     * @param seed the seed of the strategy
+     */
+    public MonteCarloStrategy(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    private MonteCarloStrategy(SplittableRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    public String getName() {
+        return "Monte Carlo";
+    }
+
+    /**
+     * Sets the maximum time that the planning of a single program may take.
+     *
+     * @param timeBudget the time budget in milliseconds
+     */
+    public void setTimeBudget(long timeBudget) {
+        if (timeBudget <= 0) {
+            throw new IllegalArgumentException("The time budget must be positive!");
+        }
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Sets the number of search trees, which are built in parallel.
+     *
+     * @param parallelism the number of trees
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("The parallelism must be positive!");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the maximum number of iterations of each search tree; the search
+     * stops after these iterations even if the time budget is not used up.
+     *
+     * @param maxIterations the maximum number of iterations per tree
+     */
+    public void setMaxIterations(int maxIterations) {
+        if (maxIterations <= 0) {
+            throw new IllegalArgumentException("The number of iterations must be positive!");
+        }
+        this.maxIterations = maxIterations;
+    }
+
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    @Override
+    public void program(@NotNull Player player) {
+        Hand hand = new Hand(player);
+        if (hand.size() == 0) {
+            return;
+        }
+        Board board = player.board;
+        int me = board.getPlayerNumber(player);
+        int registers = hand.registers();
+        int[] counts = hand.counts();
+        int[][] opponents = new int[board.getPlayersNumber()][];
+        for (int i = 0; i < opponents.length; i++) {
+            opponents[i] = i == me ? new int[0] : Hand.peek(board.getPlayer(i));
+        }
+
+        ProgramOutcomes outcomes = ProgramOutcomes.of(board);
+        BoardState state = new BoardState(board);
+        SplittableRandom random;
+        synchronized (this.random) {
+            random = this.random.split();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudget);
+        List<Tree> trees = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            trees.add(new Tree(outcomes, state, me, counts, registers, opponents,
+                    random.split(), deadline));
+        }
+        ForkJoinTask.invokeAll(trees);
+
+        // follow the most visited commands through all trees
+        int[] program = new int[registers];
+        int length = 0;
+        Node[] nodes = new Node[trees.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = trees.get(i).root;
+        }
+        while (length < registers) {
+            int best = -1;
+            int bestVisits = 0;
+            for (int command = 0; command < counts.length; command++) {
+                int visits = 0;
+                for (Node node: nodes) {
+                    if (node != null && node.children[command] != null) {
+                        visits += node.children[command].visits;
+                    }
+                }
+                if (counts[command] > 0 && visits > bestVisits) {
+                    best = command;
+                    bestVisits = visits;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            program[length++] = best;
+            counts[best]--;
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = nodes[i] != null ? nodes[i].children[best] : null;
+            }
+        }
+        hand.program(program, length);
+    }
+
+    /**
+     * A node of a search tree, which represents the commands of the registers
+     * of the bot's program up to the level of the node.
+     */
+    private static class Node {
+
+        final Node[] children = new Node[Command.values().length];
+
+        int visits;
+
+        double reward;
+
+    }
+
+    /**
+     * A search tree, which is built on its own copy of the state.
+     */
+    // a task is never serialized
+    @SuppressWarnings("serial")
+    private class Tree extends RecursiveAction {
+
+        private final Course course;
+        private final ProgramOutcomes outcomes;
+        private final BoardState state;
+        private final int me;
+        private final int[] rootCounts;
+        private final int registers;
+        private final int[][] opponents;
+        private final SplittableRandom random;
+        private final long deadline;
+
+        private final Node root = new Node();
+
+        private final int[] frame;
+        private final int[] counts;
+        private final int[] program;
+        private final int[][] programs;
+        private final int[] cards;
+        private final Node[] path;
+        private final int[] cells;
+        private final long[] results;
+
+        Tree(ProgramOutcomes outcomes, BoardState state, int me, int[] counts, int registers, int[][] opponents,
+             SplittableRandom random, long deadline) {
+            this.course = outcomes.getCourse();
+            this.outcomes = outcomes;
+            this.state = new BoardState(state);
+            this.me = me;
+            this.rootCounts = counts.clone();
+            this.registers = registers;
+            this.opponents = opponents;
+            this.random = random;
+            this.deadline = deadline;
+            this.frame = new int[3 * state.getPlayersNumber()];
+            this.state.save(frame);
+            this.counts = new int[counts.length];
+            this.program = new int[registers];
+            this.programs = new int[opponents.length][registers];
+            this.cards = new int[Player.NO_CARDS + Player.NO_REGISTERS];
+            this.path = new Node[registers + 1];
+            this.cells = new int[opponents.length];
+            this.results = new long[opponents.length];
+        }
+
+        @Override
+        protected void compute() {
+            int iterations = maxIterations;
+            for (int i = 0; i < iterations; i++) {
+                if ((i & 15) == 15 && System.nanoTime() > deadline) {
+                    break;
+                }
+                iterate();
+            }
+        }
+
+        private void iterate() {
+            sampleOpponents();
+            state.restore(frame);
+            System.arraycopy(rootCounts, 0, counts, 0, counts.length);
+
+            // selection and expansion (which do not depend on the state, so
+            // the whole program is chosen before it is simulated)
+            Node node = root;
+            path[0] = root;
+            int depth = 0;
+            while (depth < registers) {
+                int command = untried(node);
+                boolean expanded = command >= 0;
+                if (expanded) {
+                    node.children[command] = new Node();
+                } else {
+                    command = select(node);
+                }
+                node = node.children[command];
+                program[depth] = command;
+                counts[command]--;
+                path[++depth] = node;
+                if (expanded) {
+                    break;
+                }
+            }
+
+            // playout with random cards of the remaining hand
+            for (int register = depth; register < registers; register++) {
+                int command = randomCard();
+                program[register] = command;
+                counts[command]--;
+            }
+
+            int winner = -1;
+            if (!lookUp()) {
+                for (int register = 0; register < registers && winner < 0; register++) {
+                    winner = step(register);
+                }
+            }
+
+            double reward = reward(winner);
+            for (int i = 0; i <= depth; i++) {
+                path[i].visits++;
+                path[i].reward += reward;
+            }
+        }
+
+        private void sampleOpponents() {
+            for (int i = 0; i < opponents.length; i++) {
+                int[] hand = opponents[i];
+                int size = hand.length;
+                System.arraycopy(hand, 0, cards, 0, size);
+                for (int register = 0; register < registers; register++) {
+                    if (register < size) {
+                        int j = register + random.nextInt(size - register);
+                        int card = cards[j];
+                        cards[j] = cards[register];
+                        cards[register] = card;
+                        programs[i][register] = card;
+                    } else {
+                        programs[i][register] = -1;
+                    }
+                }
+            }
+        }
+
+        private int untried(Node node) {
+            int untried = 0;
+            for (int command = 0; command < counts.length; command++) {
+                if (counts[command] > 0 && node.children[command] == null) {
+                    untried++;
+                }
+            }
+            if (untried == 0) {
+                return -1;
+            }
+            int choice = random.nextInt(untried);
+            for (int command = 0; command < counts.length; command++) {
+                if (counts[command] > 0 && node.children[command] == null && choice-- == 0) {
+                    return command;
+                }
+            }
+            return -1;
+        }
+
+        private int select(Node node) {
+            double log = Math.log(node.visits);
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int command = 0; command < counts.length; command++) {
+                Node child = node.children[command];
+                if (counts[command] > 0 && child != null) {
+                    double value = child.reward / child.visits + exploration * Math.sqrt(log / child.visits);
+                    if (value > bestValue) {
+                        best = command;
+                        bestValue = value;
+                    }
+                }
+            }
+            return best;
+        }
+
+        private int randomCard() {
+            int remaining = 0;
+            for (int count: counts) {
+                remaining += count;
+            }
+            int choice = random.nextInt(remaining);
+            for (int command = 0; command < counts.length; command++) {
+                choice -= counts[command];
+                if (choice < 0) {
+                    return command;
+                }
+            }
+            throw new IllegalStateException("No cards left!");
+        }
+
+        /**
+         * Moves all robots to the outcomes of their programs in the table of
+         * program outcomes, if the robots cannot interact during the round and
+         * no one wins.
+         *
+         * @return true if the robots were moved, false otherwise
+         */
+        private boolean lookUp() {
+            for (int i = 0; i < programs.length; i++) {
+                cells[i] = state.getPosition(i);
+                if (cells[i] == BoardState.EMPTY) {
+                    continue;
+                }
+                int[] commands = i == me ? program : programs[i];
+                for (int register = 0; register < registers; register++) {
+                    if (commands[register] < 0) {
+                        return false;
+                    }
+                }
+                results[i] = outcomes.outcome(cells[i], state.getHeading(i), state.getCheckpoint(i),
+                        ProgramOutcomes.encode(commands, registers));
+                if (ProgramOutcomes.winner(results[i]) >= 0) {
+                    return false;
+                }
+                for (int j = 0; j < i; j++) {
+                    if (cells[j] != BoardState.EMPTY && !outcomes.apart(cells[i], results[i], cells[j], results[j])) {
+                        return false;
+                    }
+                }
+            }
+            // no robot ends on the start cell of another one, since they are apart
+            for (int i = 0; i < programs.length; i++) {
+                if (cells[i] != BoardState.EMPTY) {
+                    state.place(i, ProgramOutcomes.cell(results[i]), ProgramOutcomes.heading(results[i]),
+                            ProgramOutcomes.checkpoint(results[i]));
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Executes the given register for all robots, followed by the field actions.
+         *
+         * @return the number of the player who has won the game, or -1 if no one has
+         */
+        private int step(int register) {
+            Command[] commands = Command.values();
+            for (int i = 0; i < programs.length; i++) {
+                int command = i == me ? program[register] : programs[i][register];
+                if (command >= 0) {
+                    Command card = commands[command];
+                    if (card.isInteractive()) {
+                        state.turnLeft(i);
+                    } else {
+                        state.executeCommand(i, card);
+                    }
+                }
+            }
+            return course.doAllActions(state);
+        }
+
+        private double reward(int winner) {
+            if (winner >= 0) {
+                return winner == me ? 1.0 : 0.0;
+            }
+            double mine = rating(me);
+            if (programs.length == 1) {
+                return mine;
+            }
+            double best = 0.0;
+            for (int i = 0; i < programs.length; i++) {
+                if (i != me) {
+                    best = Math.max(best, rating(i));
+                }
+            }
+            return 0.5 + 0.5 * (mine - best);
+        }
+
+        // the progress of the player on the course, scaled to the range from 0 to 1
+        private double rating(int player) {
+            double rating = (double) (course.progress(state, player) + course.getWeight())
+                    / ((course.getGoal() + 1) * course.getWeight());
+            return Math.max(0.0, Math.min(1.0, rating));
+        }
+
+    }
+
+}
@@ -0,0 +1,376 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.tournament;
+
+import dk.dtu.compute.se.pisd.roborally.engine.BoardState;
+import dk.dtu.compute.se.pisd.roborally.engine.Course;
+import dk.dtu.compute.se.pisd.roborally.engine.ProgramOutcomes;
+import dk.dtu.compute.se.pisd.roborally.engine.TranspositionTable;
+import dk.dtu.compute.se.pisd.roborally.model.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bot that plans its program by trying out every possible program that
+ * can be made from the cards of its hand. Cards with the same command are
+ * not distinguished, so that each distinct program is simulated only once
+ * (at most 8*7*6*5*4 = 6720 programs for a hand of 8 different cards). The
+ * programs are simulated on a {@link BoardState} of the board, including the
+ * conveyor belts and checkpoints under the bot's robot; the other robots are
+ * assumed not to move (but can be pushed). The program that gets the robot
+ * furthest is chosen: the most checkpoints reached, and then the shortest
+ * distance to the next checkpoint; a program that wins the game is preferred
+ * over all others (the earlier it wins, the better).<p></p>
+ *
+ * The search is split by the command of the first register, and the parts
+ * are run in parallel in the fork/join pool. If the time budget is used up,
+ * the best program found so far is taken. The parts share a
+ * {@link TranspositionTable}, so that situations that are reached by
+ * different orders of the same cards are searched only once. Interactive cards are simulated
+ * with the first option, which is also the option the bot chooses when
+ * the card is executed.<p></p>
+ *
+ * Since a planning takes a while, a user interface should not wait for it:
+ * {@link #prepare(Player)} takes what the search needs from the game, the
+ * {@link Planning#search()} can then run on any thread, and
+ * {@link Planning#apply()} puts the cards on the game's thread again.
+ *
+ */
+public class PlannerStrategy implements BotStrategy {
+
+    /**
+     * The default time budget of a planning in milliseconds.
+     */
+    public static final long DEFAULT_TIME_BUDGET = 100;
+
+    private static final int WIN = Integer.MAX_VALUE;
+
+    /**
+     * The default number of entries of the transposition table of a planning.
+     */
+    public static final int DEFAULT_TABLE_SIZE = 1 << 14;
+
+    private volatile long timeBudget = DEFAULT_TIME_BUDGET;
+
+    private volatile int tableSize = DEFAULT_TABLE_SIZE;
+
+    @Override
+    public String getName() {
+        return "Planner";
+    }
+
+    /**
+     * Sets the maximum time that the planning of a single program may take.
+     *
+     * @param timeBudget the time budget in milliseconds
+     */
+    public void setTimeBudget(long timeBudget) {
+        if (timeBudget <= 0) {
+            throw new IllegalArgumentException("The time budget must be positive!");
+        }
+        this.timeBudget = timeBudget;
+    }
+
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+
+    /**
+     * Sets the number of entries of the transposition table, in which the
+     * outcomes of the positions that were searched during a planning are cached.
+     *
+     * @param tableSize the number of entries
+     */
+    public void setTableSize(int tableSize) {
+        if (tableSize <= 0) {
+            throw new IllegalArgumentException("The table size must be positive!");
+        }
+        this.tableSize = tableSize;
+    }
+
+    /**
+     * Programs the registers of the given player with the best program made from
+     * the player's cards. Cards that are already in the program fields (e.g. put
+     * there by the user) are taken back into the hand first; the cards that are
+     * not used remain in the card fields.
+     *
+     * @param player the player to be programmed
+     */
+    @Override
+    public void program(@NotNull Player player) {
+        prepare(player).search().apply();
+    }
+
+    /**
+     * Prepares the planning of a program for the given player: the state of the
+     * board and the player's cards are copied, so that the search does not touch
+     * the game anymore. This must be called on the thread of the game.
+     *
+     * @param player the player to be programmed
+     * @return the planning
+     */
+    public Planning prepare(@NotNull Player player) {
+        return new Planning(player, timeBudget, tableSize);
+    }
+
+    /**
+     * The planning of a program for a player, which is searched on a copy of
+     * the game.
+     */
+    public static final class Planning {
+
+        private final Player player;
+        private final int[] commands;
+        private final Course course;
+        private final BoardState state;
+        private final int number;
+        private final long timeBudget;
+        private final int tableSize;
+
+        private volatile int[] program;
+
+        private Planning(Player player, long timeBudget, int tableSize) {
+            Board board = player.board;
+            this.player = player;
+            this.commands = sorted(Hand.peek(player));
+            // the course of the board is compiled once and shared by all plannings
+            this.course = ProgramOutcomes.of(board).getCourse();
+            this.state = new BoardState(board);
+            this.number = board.getPlayerNumber(player);
+            this.timeBudget = timeBudget;
+            this.tableSize = tableSize;
+        }
+
+        /**
+         * Searches the best program. This can be called on any thread.
+         *
+         * @return this planning
+         */
+        public Planning search() {
+            if (commands.length == 0) {
+                program = commands;
+                return this;
+            }
+            int registers = Math.min(Player.NO_REGISTERS, commands.length);
+            int[] counts = new int[Command.values().length];
+            for (int command: commands) {
+                counts[command]++;
+            }
+
+            TranspositionTable table = new TranspositionTable(tableSize);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudget);
+            List<Search> searches = new ArrayList<>();
+            for (int command = 0; command < counts.length; command++) {
+                if (counts[command] > 0) {
+                    searches.add(new Search(course, state, number,
+                            counts, command, registers, deadline, table));
+                }
+            }
+            ForkJoinTask.invokeAll(searches);
+
+            long best = searches.get(0).outcome;
+            for (Search search: searches) {
+                if (score(search.outcome) > score(best)) {
+                    best = search.outcome;
+                }
+            }
+
+            // if the best program wins before the last register, the remaining
+            // registers get any cards
+            int[] result = new int[length(best)];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = command(best, i);
+            }
+            program = result;
+            return this;
+        }
+
+        /**
+         * Puts the cards of the program that was found into the program fields
+         * of the player. This must be called on the thread of the game again.
+         * If the cards of the player have changed since the planning was
+         * prepared, the program is not applied.
+         *
+         * @return whether the program was applied
+         */
+        public boolean apply() {
+            int[] program = this.program;
+            if (program == null) {
+                throw new IllegalStateException("The program has not been searched yet!");
+            }
+            if (commands.length == 0 || !Arrays.equals(commands, sorted(Hand.peek(player)))) {
+                return false;
+            }
+            new Hand(player).program(program, program.length);
+            return true;
+        }
+
+        private static int[] sorted(int[] commands) {
+            Arrays.sort(commands);
+            return commands;
+        }
+
+    }
+
+    /**
+     * The search through all programs starting with a given command, on its
+     * own copy of the state. The outcome of the remaining registers is cached
+     * in the transposition table by the state after the previous registers,
+     * the remaining cards and the register; so different orders of cards that
+     * lead to the same situation are searched only once.
+     */
+    // a task is never serialized
+    @SuppressWarnings("serial")
+    private static class Search extends RecursiveAction {
+
+        private final Course course;
+        private final BoardState state;
+        private final int player;
+        private final int[] counts;
+        private final int first;
+        private final int registers;
+        private final long deadline;
+        private final TranspositionTable table;
+
+        private final int[][] frames;
+
+        private long outcome = MISSING;
+
+        private int leaves;
+        private boolean timeout;
+
+        Search(Course course, BoardState state, int player, int[] counts, int first, int registers,
+               long deadline, TranspositionTable table) {
+            this.course = course;
+            this.state = new BoardState(state);
+            this.player = player;
+            this.counts = counts.clone();
+            this.first = first;
+            this.registers = registers;
+            this.deadline = deadline;
+            this.table = table;
+            this.frames = new int[registers][3 * state.getPlayersNumber()];
+        }
+
+        @Override
+        protected void compute() {
+            outcome = play(0, first);
+        }
+
+        /**
+         * Plays the given command in the given register, followed by the best
+         * commands for the remaining registers.
+         *
+         * @return the outcome of the registers from the given one on
+         */
+        private long play(int register, int command) {
+            state.save(frames[register]);
+            counts[command]--;
+
+            Command card = Command.values()[command];
+            if (card.isInteractive()) {
+                state.turnLeft(player);
+            } else {
+                state.executeCommand(player, card);
+            }
+            long result;
+            if (course.doActions(state, player)) {
+                result = outcome(WIN - register);
+            } else if (register + 1 == registers) {
+                result = outcome(course.progress(state, player));
+                if ((++leaves & 63) == 0 && System.nanoTime() > deadline) {
+                    timeout = true;
+                }
+            } else {
+                result = best(register + 1);
+            }
+
+            counts[command]++;
+            state.restore(frames[register]);
+            return prepend(command, result);
+        }
+
+        /**
+         * Returns the best outcome of the registers from the given one on, in
+         * the current state with the remaining cards.
+         */
+        private long best(int register) {
+            long context = register;
+            for (int count: counts) {
+                context = (context << 4) | count;
+            }
+            long key = state.getHash() ^ Zobrist.mix((context << 8) | player);
+            long best = table.get(key, MISSING);
+            if (best != MISSING) {
+                return best;
+            }
+            for (int command = 0; command < counts.length; command++) {
+                if (counts[command] > 0 && (best == MISSING || !timeout)) {
+                    long result = play(register, command);
+                    if (best == MISSING || score(result) > score(best)) {
+                        best = result;
+                    }
+                }
+            }
+            if (!timeout) {
+                table.put(key, best);
+            }
+            return best;
+        }
+
+    }
+
+    // An outcome of a search is packed into a long: the score in the upper
+    // 32 bits, the number of registers of the program in bits 0-3, and the
+    // commands of the program in 3 bits each from bit 4 on.
+
+    private static final long MISSING = Long.MIN_VALUE;
+
+    private static long outcome(int score) {
+        return (long) score << 32;
+    }
+
+    private static long prepend(int command, long outcome) {
+        int length = (int) (outcome & 0xf);
+        long commands = (outcome & 0xffff_fff0L) >>> 4;
+        return (outcome & 0xffff_ffff_0000_0000L) | ((commands << 3 | command) << 4) | (length + 1);
+    }
+
+    private static int score(long outcome) {
+        return (int) (outcome >> 32);
+    }
+
+    private static int length(long outcome) {
+        return (int) (outcome & 0xf);
+    }
+
+    private static int command(long outcome, int register) {
+        return (int) (outcome >>> (4 + 3 * register)) & 7;
+    }
+
+}
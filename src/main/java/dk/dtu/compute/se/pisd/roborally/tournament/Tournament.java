@@ -0,0 +1,254 @@
+/*
+ *  This file is part of the initial project provided for the
+ *  course "Project in Software Development (02362)" held at
+ *  DTU Compute at the Technical University of Denmark.
+ *
+ *  Copyright (C) 2019, 2020: Ekkart Kindler, ekki@dtu.dk
+ *
+ *  This software is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; version 2 of the License.
+ *
+ *  This project is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this project; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package dk.dtu.compute.se.pisd.roborally.tournament;
+
+import dk.dtu.compute.se.pisd.roborally.controller.Checkpoint;
+import dk.dtu.compute.se.pisd.roborally.controller.FieldAction;
+import dk.dtu.compute.se.pisd.roborally.engine.DistanceFields;
+import dk.dtu.compute.se.pisd.roborally.engine.GameEngine;
+import dk.dtu.compute.se.pisd.roborally.fileaccess.LoadBoard;
+import dk.dtu.compute.se.pisd.roborally.model.Board;
+import dk.dtu.compute.se.pisd.roborally.model.Player;
+import dk.dtu.compute.se.pisd.roborally.model.Space;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A tournament runs a number of independent games of bots on the same board and
+ * reports the result of each game to a {@link ResultCollector}. The games are
+ * run in parallel on a work-stealing {@link ForkJoinPool}, which by default uses
+ * all available cores. Each game has its own board (loaded by {@link LoadBoard})
+ * and its own {@link GameEngine}, so that the games do not share any mutable
+ * state.
+ *
+ */
+public class Tournament {
+
+    /**
+     * The default number of rounds after which a game is stopped, when no
+     * player has won yet.
+     */
+    public static final int DEFAULT_MAX_ROUNDS = 100;
+
+    private static final List<String> PLAYER_COLORS = Arrays.asList("red", "green", "blue", "orange", "grey", "magenta");
+
+    private final String boardName;
+
+    private final List<BotStrategy> strategies;
+
+    private final int games;
+
+    private int maxRounds = DEFAULT_MAX_ROUNDS;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private long seed = System.nanoTime();
+
+    /**
+     * Creates a tournament with the given number of games on the board with
+     * the given name. In each game, there is one player for each of the
+     * given strategies.
+     *
+     * @param boardName the name of the board
+     * @param strategies the strategies of the players
+     * @param games the number of games
+     */
+    public Tournament(String boardName, @NotNull List<BotStrategy> strategies, int games) {
+        if (strategies.isEmpty()) {
+            throw new IllegalArgumentException("A tournament needs at least one player!");
+        }
+        this.boardName = boardName;
+        this.strategies = new ArrayList<>(strategies);
+        this.games = games;
+    }
+
+    /**
+     * Sets the number of rounds (programming and activation phase) after which
+     * a game is stopped without a winner.
+     *
+     * @param maxRounds the maximum number of rounds of a game
+     */
+    public void setMaxRounds(int maxRounds) {
+        this.maxRounds = maxRounds;
+    }
+
+    /**
+     * Sets the seed of this tournament. The seeds of the individual games
+     * are derived from this seed and the number of the game, so that the
+     * tournament (and each of its games) can be replayed.
+     *
+     * @param seed the seed of the tournament
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the number of threads on which the games are run.
+     *
+     * @param parallelism the number of threads
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Runs all games of this tournament and reports their results to the
+     * given collector. This method returns when all games are finished.
+     *
+     * @param collector the collector for the results (must be thread-safe)
+     */
+    public void run(@NotNull ResultCollector collector) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new Games(0, games, collector));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays a single game of this tournament.
+     *
+     * @param game the number of the game
+     * @return the result of the game
+     */
+    public GameResult playGame(int game) {
+        Board board = LoadBoard.loadBoard(boardName);
+        board.setSeed(new SplittableRandom(seed + game).nextLong());
+        GameEngine engine = new GameEngine(board);
+        for (int i = 0; i < strategies.size(); i++) {
+            Player player = new Player(board, PLAYER_COLORS.get(i % PLAYER_COLORS.size()), strategies.get(i).getName());
+            board.addPlayer(player);
+            player.setSpace(board.getSpace(i % board.width, i % board.height));
+        }
+        board.setCurrentPlayer(board.getPlayer(0));
+        engine.setInteractionHandler(
+                (player, command) -> strategies.get(board.getPlayerNumber(player)).choose(player, command));
+
+        int[][] checkpoints = new int[strategies.size()][countCheckpoints(board)];
+        for (int[] timings: checkpoints) {
+            Arrays.fill(timings, -1);
+        }
+
+        int goal = countCheckpoints(board);
+        for (int round = 0; round < maxRounds && !engine.isGameOver() && isWinnable(board, goal); round++) {
+            engine.startProgrammingPhase();
+            for (int i = 0; i < strategies.size(); i++) {
+                strategies.get(i).program(board.getPlayer(i));
+            }
+            engine.finishProgrammingPhase();
+            // executes the whole round at once if the robots cannot meet
+            engine.executeRegisters();
+            recordCheckpoints(board, engine.getRegisters(), checkpoints);
+        }
+
+        Player winner = board.getWinner();
+        return new GameResult(game,
+                board.getSeed(),
+                winner != null ? board.getPlayerNumber(winner) : -1,
+                engine.getRegisters(),
+                checkpoints);
+    }
+
+    private void recordCheckpoints(Board board, int registers, int[][] checkpoints) {
+        for (int i = 0; i < checkpoints.length; i++) {
+            int reached = Math.min(board.getPlayer(i).getCurrentCheckpoint(), checkpoints[i].length);
+            for (int j = 0; j < reached; j++) {
+                if (checkpoints[i][j] < 0) {
+                    checkpoints[i][j] = registers;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether any player can still reach the last checkpoint; if not
+     * (e.g. because all robots are walled in), the game is stopped early.
+     */
+    private static boolean isWinnable(Board board, int goal) {
+        if (goal == 0) {
+            return false;
+        }
+        DistanceFields distances = DistanceFields.of(board);
+        for (int i = 0; i < board.getPlayersNumber(); i++) {
+            Player player = board.getPlayer(i);
+            Space space = player.getSpace();
+            if (space != null && distances.distanceToGoal(player.getCurrentCheckpoint(), board.getIndex(space), goal)
+                    != DistanceFields.UNREACHABLE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int countCheckpoints(Board board) {
+        int result = 0;
+        for (Space space: board.getActionSpaces()) {
+            for (FieldAction action: space.getActions()) {
+                if (action instanceof Checkpoint) {
+                    result = Math.max(result, ((Checkpoint) action).getNumber());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The task playing a range of games of the tournament; the range is split
+     * until the tasks play a single game, so that the pool can balance games of
+     * different lengths across the threads.
+     */
+    // a task is never serialized
+    @SuppressWarnings("serial")
+    private class Games extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final ResultCollector collector;
+
+        Games(int from, int to, ResultCollector collector) {
+            this.from = from;
+            this.to = to;
+            this.collector = collector;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    collector.collect(playGame(from));
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Games(from, middle, collector), new Games(middle, to, collector));
+            }
+        }
+    }
+
+}
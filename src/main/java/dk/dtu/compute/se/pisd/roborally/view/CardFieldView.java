@@ -248,7 +248,7 @@ public class CardFieldView extends GridPane implements ViewObserver {
                             int number = (Integer) object;
                             if (number < Command.values().length) {
                                 Command command = Command.values()[number];
-                                cardField.setCard(new CommandCard(command));
+                                cardField.setCard(CommandCard.valueOf(command));
                                 event.setDropCompleted(true);
                                 event.consume();
                                 return;
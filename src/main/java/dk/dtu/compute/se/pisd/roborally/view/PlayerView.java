@@ -26,6 +26,8 @@ import dk.dtu.compute.se.pisd.roborally.controller.GameController;
 import dk.dtu.compute.se.pisd.roborally.model.CommandCardField;
 import dk.dtu.compute.se.pisd.roborally.model.Phase;
 import dk.dtu.compute.se.pisd.roborally.model.Player;
+import dk.dtu.compute.se.pisd.roborally.tournament.PlannerStrategy;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
@@ -34,6 +36,8 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.layout.VBox;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * ...
  *
@@ -61,6 +65,9 @@ public class PlayerView extends Tab implements ViewObserver {
     private Button finishButton;
     private Button executeButton;
     private Button stepButton;
+    private Button planButton;
+
+    private boolean planning;
 
     private VBox playerInteractionPanel;
 
@@ -109,7 +116,12 @@ public class PlayerView extends Tab implements ViewObserver {
         stepButton = new Button("Execute Current Register");
         stepButton.setOnAction( e-> gameController.executeStep());
 
-        buttonPanel = new VBox(finishButton, executeButton, stepButton);
+        // instead of dragging the cards into the registers, the program can be
+        // planned by a bot (e.g. for players who are not at the table)
+        planButton = new Button("Plan Program");
+        planButton.setOnAction( e-> plan());
+
+        buttonPanel = new VBox(finishButton, executeButton, stepButton, planButton);
         buttonPanel.setAlignment(Pos.CENTER_LEFT);
         buttonPanel.setSpacing(3.0);
 
@@ -186,24 +198,28 @@ public class PlayerView extends Tab implements ViewObserver {
                         //     from the initialization phase to the programming phase somehow!
                         executeButton.setDisable(false);
                         stepButton.setDisable(true);
+                        planButton.setDisable(true);
                         break;
 
                     case PROGRAMMING:
                         finishButton.setDisable(false);
                         executeButton.setDisable(true);
                         stepButton.setDisable(true);
+                        planButton.setDisable(planning);
                         break;
 
                     case ACTIVATION:
                         finishButton.setDisable(true);
                         executeButton.setDisable(false);
                         stepButton.setDisable(false);
+                        planButton.setDisable(true);
                         break;
 
                     default:
                         finishButton.setDisable(true);
                         executeButton.setDisable(true);
                         stepButton.setDisable(true);
+                        planButton.setDisable(true);
                 }
             } else {
                 if (!programPane.getChildren().contains(playerInteractionPanel)) {
@@ -234,4 +250,23 @@ public class PlayerView extends Tab implements ViewObserver {
         }
     }
 
+    /**
+     * Plans the program of this player by a bot. The search runs in the
+     * background, so that the user interface does not freeze meanwhile; the
+     * cards are put into the registers on the JavaFX thread when it is done.
+     */
+    private void plan() {
+        planning = true;
+        planButton.setDisable(true);
+        PlannerStrategy.Planning plan = new PlannerStrategy().prepare(player);
+        CompletableFuture.supplyAsync(plan::search).whenComplete(
+                (result, exception) -> Platform.runLater(() -> {
+                    planning = false;
+                    if (exception == null && player.board.getPhase() == Phase.PROGRAMMING) {
+                        result.apply();
+                    }
+                    update(player.board);
+                }));
+    }
+
 }
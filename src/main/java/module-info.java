@@ -27,6 +27,8 @@ module roborally {
     // for the respective packages
     exports dk.dtu.compute.se.pisd.roborally.view;
     exports dk.dtu.compute.se.pisd.roborally.controller;
+    exports dk.dtu.compute.se.pisd.roborally.engine;
+    exports dk.dtu.compute.se.pisd.roborally.tournament;
 
     exports dk.dtu.compute.se.pisd.roborally.dal;
     exports dk.dtu.compute.se.pisd.roborally.fileaccess;
@@ -24,11 +24,18 @@ CREATE TABLE IF NOT EXISTS Player (
   positionX int,
   positionY int,
   heading tinyint,
+
+  /* the program and card fields of the player, 4 bits each (see CardFields) */
+  cards bigint NULL,
   
   PRIMARY KEY (gameID, playerID),
   FOREIGN KEY (gameID) REFERENCES Game(gameID)
 );;
 
+/* Adds the column for the cards to databases created before; this fails
+   (and the error is ignored) if the column exists already */
+ALTER TABLE Player ADD COLUMN cards bigint NULL;;
+
 SET FOREIGN_KEY_CHECKS = 1;;
 
 // TODO still some stuff missing here
\ No newline at end of file
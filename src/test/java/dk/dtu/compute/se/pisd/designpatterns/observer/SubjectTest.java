@@ -0,0 +1,110 @@
+package dk.dtu.compute.se.pisd.designpatterns.observer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubjectTest {
+
+    private static class Counter extends Subject {
+
+        private int value;
+
+        void increment() {
+            value++;
+            notifyChange();
+        }
+    }
+
+    private static class CountingObserver implements Observer {
+
+        private int updates;
+
+        @Override
+        public void update(Subject subject) {
+            updates++;
+        }
+    }
+
+    @Test
+    void testNotifyWithoutBatch() {
+        Counter counter = new Counter();
+        CountingObserver observer = new CountingObserver();
+        counter.attach(observer);
+
+        counter.increment();
+        counter.increment();
+
+        assertEquals(2, observer.updates);
+    }
+
+    @Test
+    void testBatchNotifiesOnce() {
+        Counter counter1 = new Counter();
+        Counter counter2 = new Counter();
+        Counter counter3 = new Counter();
+        CountingObserver observer = new CountingObserver();
+        counter1.attach(observer);
+        counter2.attach(observer);
+        counter3.attach(observer);
+
+        Subject.beginBatch();
+        counter1.increment();
+        counter1.increment();
+        Subject.batch(() -> {
+            counter2.increment();
+            counter1.increment();
+        });
+        assertEquals(0, observer.updates, "No observer should be notified before the outermost batch is committed!");
+        Subject.commitBatch();
+
+        assertEquals(2, observer.updates, "Each changed subject should be notified exactly once!");
+
+        counter3.increment();
+        assertEquals(3, observer.updates, "After the batch, changes should be notified right away!");
+    }
+
+    @Test
+    void testFailingObserverEndsBatch() {
+        Counter counter = new Counter();
+        CountingObserver observer = new CountingObserver();
+        Observer failing = subject -> {
+            throw new IllegalStateException("failed");
+        };
+        counter.attach(failing);
+
+        Subject.beginBatch();
+        counter.increment();
+        assertThrows(IllegalStateException.class, Subject::commitBatch);
+
+        counter.detach(failing);
+        counter.attach(observer);
+        Subject.batch(counter::increment);
+        assertEquals(1, observer.updates, "A subject should be notified again after a failed commit!");
+    }
+
+    @Test
+    void testAttachAndDetach() {
+        Counter counter = new Counter();
+        CountingObserver observer1 = new CountingObserver();
+        CountingObserver observer2 = new CountingObserver();
+
+        counter.increment();
+        counter.attach(observer1);
+        counter.attach(observer1);
+        counter.attach(observer2);
+        counter.increment();
+
+        assertEquals(1, observer1.updates, "An observer attached twice should be notified only once!");
+        assertEquals(1, observer2.updates);
+
+        counter.detach(observer1);
+        counter.increment();
+        counter.detach(observer2);
+        counter.increment();
+
+        assertEquals(1, observer1.updates, "A detached observer should not be notified anymore!");
+        assertEquals(2, observer2.updates);
+    }
+
+}
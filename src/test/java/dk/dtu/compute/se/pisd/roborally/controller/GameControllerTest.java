@@ -469,4 +469,205 @@ class GameControllerTest {
 
         assertNull(board.getNeighbour(current.getSpace(), current.getHeading()));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testNeighboursAfterWallChange() {
+        Board board = gameController.board;
+        Space space = board.getSpace(7, 0);
+
+        assertEquals(board.getSpace(0, 0), board.getNeighbour(space, Heading.EAST));
+
+        board.getSpace(0, 0).getWalls().add(Heading.WEST);
+        assertTrue(board.getSpace(0, 0).hasWall(Heading.WEST));
+        assertNull(board.getNeighbour(space, Heading.EAST));
+
+        board.getSpace(0, 0).getWalls().remove(Heading.WEST);
+        assertFalse(board.getSpace(0, 0).hasWall(Heading.WEST));
+        assertEquals(board.getSpace(0, 0), board.getNeighbour(space, Heading.EAST));
+    }
+
+    @Test
+    void testFieldActionsInBoardOrder() {
+        Board board = gameController.board;
+        Player current = board.getCurrentPlayer();
+
+        for (int y = 0; y < 2; y++) {
+            ConveyorBelt belt = new ConveyorBelt();
+            belt.setHeading(Heading.SOUTH);
+            board.getSpace(0, y).getActions().add(belt);
+        }
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.setNumber(1);
+        board.getSpace(7, 7).getActions().add(checkpoint);
+
+        assertEquals(3, board.getActionSpaces().size());
+        assertEquals(-1, board.getActionOrder(board.getSpace(1, 1)));
+
+        gameController.doAllAction();
+
+        assertEquals(current, board.getSpace(0, 1).getPlayer(),
+                "Player " + current.getName() + " should have been moved by one conveyor belt only!");
+        assertEquals(0, board.getPlayer(1).getCurrentCheckpoint());
+    }
+
+    @Test
+    void testConveyorBeltConflicts() {
+        Board board = gameController.board;
+        Player player0 = board.getPlayer(0);
+        Player player1 = board.getPlayer(1);
+        Player player2 = board.getPlayer(2);
+
+        // two belts merging into Space (4,0): neither robot moves
+        player0.setSpace(board.getSpace(3, 0));
+        player1.setSpace(board.getSpace(5, 0));
+        addBelt(board, 3, 0, Heading.EAST);
+        addBelt(board, 5, 0, Heading.WEST);
+
+        // a line of robots on belts moves as a whole
+        player2.setSpace(board.getSpace(0, 5));
+        board.getPlayer(3).setSpace(board.getSpace(0, 6));
+        addBelt(board, 0, 5, Heading.SOUTH);
+        addBelt(board, 0, 6, Heading.SOUTH);
+
+        gameController.doAllAction();
+
+        assertEquals(player0, board.getSpace(3, 0).getPlayer(), "Player 0 should not have moved!");
+        assertEquals(player1, board.getSpace(5, 0).getPlayer(), "Player 1 should not have moved!");
+        assertEquals(player2, board.getSpace(0, 6).getPlayer(), "Player 2 should follow player 3!");
+        assertEquals(board.getPlayer(3), board.getSpace(0, 7).getPlayer(), "Player 3 should have moved!");
+    }
+
+    private static void addBelt(Board board, int x, int y, Heading heading) {
+        ConveyorBelt belt = new ConveyorBelt();
+        belt.setHeading(heading);
+        board.getSpace(x, y).getActions().add(belt);
+    }
+
+    @Test
+    void testDeckCycle() {
+        Board board = gameController.board;
+        Player player = board.getPlayer(0);
+        int cards = board.getDeckComposition().size();
+
+        for (int round = 0; round < 10; round++) {
+            gameController.startProgrammingPhase();
+            for (int j = 0; j < Player.NO_REGISTERS; j++) {
+                player.getProgramField(j).setCard(player.getCardField(j).getCard());
+                player.getCardField(j).setCard(null);
+            }
+            Deck deck = player.getDeck();
+            assertEquals(cards - Player.NO_CARDS, deck.getDrawPileSize() + deck.getDiscardPileSize(),
+                    "All cards which are not dealt should be in the deck!");
+        }
+        assertSame(CommandCard.valueOf(Command.FORWARD), CommandCard.valueOf(Command.FORWARD));
+    }
+
+    @Test
+    void testBlockedPushChain() {
+        Board board = gameController.board;
+        Player player0 = board.getPlayer(0);
+        Player player1 = board.getPlayer(1);
+        Player player2 = board.getPlayer(2);
+
+        player0.setSpace(board.getSpace(0, 7));
+        player1.setSpace(board.getSpace(1, 7));
+        player2.setSpace(board.getSpace(2, 7));
+        board.getSpace(2, 7).getWalls().add(Heading.EAST);
+
+        assertFalse(gameController.moveToSpace(player0, board.getSpace(1, 7), Heading.EAST),
+                "The move should be blocked by the wall!");
+
+        assertEquals(player0, board.getSpace(0, 7).getPlayer(), "Player 0 should not have moved!");
+        assertEquals(player1, board.getSpace(1, 7).getPlayer(), "Player 1 should not have moved!");
+        assertEquals(player2, board.getSpace(2, 7).getPlayer(), "Player 2 should not have moved!");
+
+        board.getSpace(2, 7).getWalls().clear();
+        assertTrue(gameController.moveToSpace(player0, board.getSpace(1, 7), Heading.EAST));
+
+        assertEquals(player0, board.getSpace(1, 7).getPlayer(), "Player 0 should be on Space (1,7)!");
+        assertEquals(player1, board.getSpace(2, 7).getPlayer(), "Player 1 should be on Space (2,7)!");
+        assertEquals(player2, board.getSpace(3, 7).getPlayer(), "Player 2 should be on Space (3,7)!");
+    }
+
+    @Test
+    void testSnapshotRestore() {
+        Board board = gameController.board;
+        Player player0 = board.getPlayer(0);
+        Player player1 = board.getPlayer(1);
+        BoardSnapshot snapshot = board.snapshot();
+
+        // player 1 takes the space of player 0, and player 0 is moved away
+        player0.setSpace(board.getSpace(0, 5));
+        player1.setSpace(board.getSpace(0, 0));
+        player1.setHeading(Heading.EAST);
+        player1.setCurrentCheckpoint(2);
+        board.setPhase(Phase.ACTIVATION);
+        board.setStep(3);
+        board.setCurrentPlayer(player1);
+
+        board.restore(snapshot);
+
+        assertEquals(player0, board.getSpace(0, 0).getPlayer(), "Player 0 should be back on Space (0,0)!");
+        assertEquals(player1, board.getSpace(1, 1).getPlayer(), "Player 1 should be back on Space (1,1)!");
+        assertNull(board.getSpace(0, 5).getPlayer(), "Space (0,5) should be empty again!");
+        assertEquals(Heading.WEST, player1.getHeading());
+        assertEquals(0, player1.getCurrentCheckpoint());
+        assertEquals(Phase.INITIALISATION, board.getPhase());
+        assertEquals(0, board.getStep());
+        assertEquals(player0, board.getCurrentPlayer());
+    }
+
+    @Test
+    void testRestoreWithoutCurrentPlayer() {
+        Board board = new Board(8, 8);
+        Player player = new Player(board, null, "Player 0");
+        board.addPlayer(player);
+        BoardSnapshot snapshot = board.snapshot();
+
+        board.setCurrentPlayer(player);
+        board.restore(snapshot);
+
+        assertNull(board.getCurrentPlayer(), "The current player should be reset, if the snapshot had none!");
+        assertEquals(-1, board.getCurrentPlayerNumber());
+    }
+
+    @Test
+    void testPlayerNumbers() {
+        Board board = gameController.board;
+        Player player = board.getPlayer(3);
+        assertEquals(3, board.getPlayerNumber(player));
+
+        board.addPlayer(player);
+        assertEquals(6, board.getPlayersNumber(), "A player should be added only once!");
+
+        Player other = new Player(new Board(TEST_WIDTH, TEST_HEIGHT), null, "Other");
+        assertEquals(-1, board.getPlayerNumber(other));
+        board.setCurrentPlayer(other);
+        assertEquals(0, board.getCurrentPlayerNumber(), "A player of another board should not become current!");
+
+        board.setCurrentPlayer(player);
+        assertEquals(3, board.getCurrentPlayerNumber());
+        assertEquals(player, board.getCurrentPlayer());
+    }
+
+    @Test
+    void testChangeTracking() {
+        Board board = gameController.board;
+        board.clearChanges();
+        Player player = board.getPlayer(1);
+
+        player.setHeading(player.getHeading());
+        assertEquals(0, player.getChanges(), "Setting the same heading should not be a change!");
+
+        board.setStep(2);
+        player.setSpace(board.getSpace(1, 5));
+        player.getCardField(3).setCard(new CommandCard(Command.FORWARD));
+        assertEquals(Board.CHANGED_STEP, board.getChanges());
+        assertEquals(Player.CHANGED_SPACE | Player.CHANGED_CARDS, player.getChanges());
+        assertEquals(0, board.getPlayer(2).getChanges());
+
+        board.clearChanges();
+        assertEquals(0, board.getChanges());
+        assertEquals(0, player.getChanges());
+    }
+}
@@ -0,0 +1,39 @@
+package dk.dtu.compute.se.pisd.roborally.dal;
+
+import dk.dtu.compute.se.pisd.roborally.model.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardFieldsTest {
+
+    @Test
+    void testEncodeDecode() {
+        Board board = new Board(8, 8);
+        Player player = new Player(board, null, "Player 1");
+        Command[] commands = Command.values();
+        for (int i = 0; i < Player.NO_REGISTERS; i++) {
+            player.getProgramField(i).setCard(i == 2 ? null : CommandCard.valueOf(commands[i % commands.length]));
+            player.getProgramField(i).setVisible(i % 2 == 0);
+        }
+        for (int i = 0; i < Player.NO_CARDS; i++) {
+            player.getCardField(i).setCard(CommandCard.valueOf(commands[(i + 3) % commands.length]));
+            player.getCardField(i).setVisible(i != 7);
+        }
+
+        long cards = CardFields.encode(player);
+        assertEquals(0, cards >>> ((Player.NO_REGISTERS + Player.NO_CARDS) * 4));
+
+        Player loaded = new Player(board, null, "Player 2");
+        CardFields.decode(cards, loaded);
+        for (int i = 0; i < Player.NO_REGISTERS; i++) {
+            assertEquals(player.getProgramField(i).getCard(), loaded.getProgramField(i).getCard());
+            assertEquals(player.getProgramField(i).isVisible(), loaded.getProgramField(i).isVisible());
+        }
+        for (int i = 0; i < Player.NO_CARDS; i++) {
+            assertEquals(player.getCardField(i).getCard(), loaded.getCardField(i).getCard());
+            assertEquals(player.getCardField(i).isVisible(), loaded.getCardField(i).isVisible());
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+package dk.dtu.compute.se.pisd.roborally.dal;
+
+import dk.dtu.compute.se.pisd.roborally.model.Board;
+import dk.dtu.compute.se.pisd.roborally.model.Player;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GamePersisterTest {
+
+    /**
+     * A repository which records the written records instead of accessing a
+     * database; the creation of the game waits until it is released.
+     */
+    private static class RecordingRepository extends Repository {
+
+        final CountDownLatch started = new CountDownLatch(1);
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final List<GameRecord> written = new CopyOnWriteArrayList<>();
+
+        volatile boolean fail = false;
+
+        volatile boolean alive = true;
+
+        RecordingRepository() {
+            super(null);
+        }
+
+        @Override
+        boolean isAlive() {
+            return alive;
+        }
+
+        @Override
+        boolean createGameInDB(GameRecord record) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (fail) {
+                return false;
+            }
+            record.gameId = 42;
+            written.add(record);
+            return true;
+        }
+
+        @Override
+        boolean updateGameInDB(GameRecord record) {
+            written.add(record);
+            return true;
+        }
+
+    }
+
+    @Test
+    void testSavesCoalesced() throws Exception {
+        RecordingRepository repository = new RecordingRepository();
+        GamePersister persister = new GamePersister(() -> repository);
+        Board board = new Board(8, 8);
+        Player player = new Player(board, null, "Player 1");
+        board.addPlayer(player);
+        player.setSpace(board.getSpace(0, 0));
+
+        CompletableFuture<Integer> created = persister.save(board);
+        assertTrue(repository.started.await(5, TimeUnit.SECONDS));
+        player.setSpace(board.getSpace(1, 0));
+        CompletableFuture<Integer> first = persister.save(board);
+        board.setStep(3);
+        CompletableFuture<Integer> second = persister.save(board);
+        assertSame(first, second, "Saves waiting in the queue should be coalesced!");
+        assertEquals(0, board.getChanges(), "The changes should be taken over by the persister!");
+
+        repository.release.countDown();
+        assertEquals(Integer.valueOf(42), created.get(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(42), second.get(5, TimeUnit.SECONDS));
+        persister.flush().get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, repository.written.size());
+        assertNull(board.getGameId(), "The persister should not change the game on its thread!");
+        GameRecord update = repository.written.get(1);
+        assertEquals(Integer.valueOf(42), update.gameId);
+        assertEquals(Board.CHANGED_STEP, update.changes);
+        assertEquals(3, update.step);
+        assertEquals(1, update.players[0].x);
+        assertEquals(Player.CHANGED_SPACE, update.players[0].changes);
+
+        // the next save sets the id on the game (on the calling thread)
+        persister.save(board).get(5, TimeUnit.SECONDS);
+        assertEquals(Integer.valueOf(42), board.getGameId());
+    }
+
+    @Test
+    void testDeadDatabaseFailsFast() throws Exception {
+        RecordingRepository repository = new RecordingRepository();
+        repository.alive = false;
+        GamePersister persister = new GamePersister(() -> repository);
+        Board board = new Board(8, 8);
+
+        CompletableFuture<Integer> result = persister.save(board);
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof SQLException);
+        assertEquals(1, repository.started.getCount(), "The database should not be accessed when it is not alive!");
+
+        repository.alive = true;
+        repository.release.countDown();
+        assertEquals(Integer.valueOf(42), persister.save(board).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testFailedGameCollected() throws Exception {
+        RecordingRepository repository = new RecordingRepository();
+        repository.fail = true;
+        repository.release.countDown();
+        GamePersister persister = new GamePersister(() -> repository);
+        Board board = new Board(8, 8);
+
+        assertNull(persister.save(board).get(5, TimeUnit.SECONDS));
+        WeakReference<Board> reference = new WeakReference<>(board);
+        board = null;
+        for (int i = 0; i < 100 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get(), "The changes kept for a failed save should not keep the game alive!");
+    }
+
+}
@@ -0,0 +1,126 @@
+package dk.dtu.compute.se.pisd.roborally.engine;
+
+import dk.dtu.compute.se.pisd.roborally.controller.GameController;
+import dk.dtu.compute.se.pisd.roborally.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardStateTest {
+
+    private final int TEST_WIDTH = 8;
+    private final int TEST_HEIGHT = 8;
+
+    private Board board;
+
+    @BeforeEach
+    void setUp() {
+        board = new Board(TEST_WIDTH, TEST_HEIGHT);
+        for (int i = 0; i < 3; i++) {
+            Player player = new Player(board, null, "Player " + i);
+            board.addPlayer(player);
+            player.setSpace(board.getSpace(0, i));
+            player.setHeading(Heading.SOUTH);
+        }
+        board.setCurrentPlayer(board.getPlayer(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        board = null;
+    }
+
+    @Test
+    void testPushChain() {
+        BoardState state = new BoardState(board);
+
+        state.moveForward(0);
+        state.writeTo(board);
+
+        assertEquals(board.getPlayer(0), board.getSpace(0, 1).getPlayer(), "Player 0 should be on Space (0,1)!");
+        assertEquals(board.getPlayer(1), board.getSpace(0, 2).getPlayer(), "Player 1 should be on Space (0,2)!");
+        assertEquals(board.getPlayer(2), board.getSpace(0, 3).getPlayer(), "Player 2 should be on Space (0,3)!");
+        assertNull(board.getSpace(0, 0).getPlayer(), "Space (0,0) should be empty!");
+    }
+
+    @Test
+    void testBlockedPushChain() {
+        board.getSpace(0, 2).getWalls().add(Heading.SOUTH);
+        BoardState state = new BoardState(board);
+
+        assertFalse(state.move(0, Heading.SOUTH.ordinal()), "The move should be blocked by the wall!");
+        state.writeTo(board);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(board.getPlayer(i), board.getSpace(0, i).getPlayer(), "Player " + i + " should not have moved!");
+        }
+    }
+
+    @Test
+    void testSameAsGameController() {
+        Board other = new Board(TEST_WIDTH, TEST_HEIGHT);
+        for (int i = 0; i < 3; i++) {
+            Player player = new Player(other, null, "Player " + i);
+            other.addPlayer(player);
+            player.setSpace(other.getSpace(0, i));
+        }
+        board.getSpace(3, 3).getWalls().add(Heading.WEST);
+        other.getSpace(3, 3).getWalls().add(Heading.WEST);
+        GameController gameController = new GameController(other);
+        BoardState state = new BoardState(board);
+
+        Command[] commands = {Command.LEFT, Command.FAST_FORWARD, Command.FORWARD, Command.RIGHT,
+                Command.BACKWARD, Command.uTURN, Command.FAST_FORWARD, Command.FORWARD};
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 3; i++) {
+                Command command = commands[(round * 3 + i) % commands.length];
+                state.executeCommand(i, command);
+                Player player = other.getPlayer(i);
+                switch (command) {
+                    case FORWARD: gameController.moveForward(player); break;
+                    case FAST_FORWARD: gameController.fastForward(player); break;
+                    case BACKWARD: gameController.moveBackward(player); break;
+                    case LEFT: gameController.turnLeft(player); break;
+                    case RIGHT: gameController.turnRight(player); break;
+                    case uTURN: gameController.uTurn(player); break;
+                    default:
+                }
+            }
+        }
+        state.writeTo(board);
+
+        for (int i = 0; i < 3; i++) {
+            Space expected = other.getPlayer(i).getSpace();
+            Space actual = board.getPlayer(i).getSpace();
+            assertEquals(expected.x, actual.x, "Player " + i + " should have the same x position!");
+            assertEquals(expected.y, actual.y, "Player " + i + " should have the same y position!");
+            assertEquals(other.getPlayer(i).getHeading(), board.getPlayer(i).getHeading());
+        }
+    }
+
+    @Test
+    void testHashFollowsState() {
+        long initial = board.getHash();
+        BoardState state = new BoardState(board);
+        assertEquals(initial, state.getHash() ^ Zobrist.phase(board.getPhase()) ^ Zobrist.step(board.getStep()),
+                "The hash of the state should match the hash of the board!");
+
+        int[] frame = new int[3 * state.getPlayersNumber()];
+        state.save(frame);
+        state.moveForward(0);
+        state.turnLeft(1);
+        state.setCheckpoint(2, 1);
+        assertNotEquals(initial, state.getHash() ^ Zobrist.phase(board.getPhase()) ^ Zobrist.step(board.getStep()));
+
+        state.writeTo(board);
+        assertEquals(board.getHash(), state.getHash() ^ Zobrist.phase(board.getPhase()) ^ Zobrist.step(board.getStep()),
+                "The hash of the board should have been updated with the moves!");
+
+        state.restore(frame);
+        state.writeTo(board);
+        assertEquals(initial, board.getHash(), "The hash should be the same after undoing the moves!");
+    }
+
+}
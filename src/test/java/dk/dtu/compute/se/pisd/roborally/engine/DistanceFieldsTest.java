@@ -0,0 +1,39 @@
+package dk.dtu.compute.se.pisd.roborally.engine;
+
+import dk.dtu.compute.se.pisd.roborally.controller.Checkpoint;
+import dk.dtu.compute.se.pisd.roborally.controller.ConveyorBelt;
+import dk.dtu.compute.se.pisd.roborally.model.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceFieldsTest {
+
+    @Test
+    void testDistancesWithWallsAndBelts() {
+        Board board = new Board(8, 8);
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.setNumber(1);
+        board.getSpace(0, 3).getActions().add(checkpoint);
+
+        DistanceFields fields = DistanceFields.of(board);
+        assertSame(fields, DistanceFields.of(board), "The distance fields should be cached!");
+        assertEquals(0, fields.distance(1, board.getIndex(board.getSpace(0, 3))));
+        assertEquals(3, fields.distance(1, board.getIndex(board.getSpace(0, 0))));
+        assertEquals(4, fields.distance(1, board.getIndex(board.getSpace(0, 7))), "The board should wrap around!");
+        assertEquals(DistanceFields.UNREACHABLE, fields.distance(2, 0), "There is no checkpoint 2!");
+
+        board.getSpace(0, 2).getWalls().add(Heading.SOUTH);
+        fields = DistanceFields.of(board);
+        assertEquals(5, fields.distance(1, board.getIndex(board.getSpace(0, 0))),
+                "The robot should have to go around the wall!");
+
+        ConveyorBelt belt = new ConveyorBelt();
+        belt.setHeading(Heading.SOUTH);
+        board.getSpace(1, 1).getActions().add(belt);
+        fields = DistanceFields.of(board);
+        assertEquals(4, fields.distance(1, board.getIndex(board.getSpace(0, 0))),
+                "The conveyor belt should carry the robot one space for free!");
+    }
+
+}
@@ -0,0 +1,117 @@
+package dk.dtu.compute.se.pisd.roborally.engine;
+
+import dk.dtu.compute.se.pisd.roborally.controller.Checkpoint;
+import dk.dtu.compute.se.pisd.roborally.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameEngineTest {
+
+    private final int TEST_WIDTH = 8;
+    private final int TEST_HEIGHT = 8;
+
+    private GameEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        Board board = new Board(TEST_WIDTH, TEST_HEIGHT);
+        engine = new GameEngine(board);
+        for (int i = 0; i < 2; i++) {
+            Player player = new Player(board, null, "Player " + i);
+            board.addPlayer(player);
+            player.setSpace(board.getSpace(i, 0));
+        }
+        board.setCurrentPlayer(board.getPlayer(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine = null;
+    }
+
+    @Test
+    void testGameOverReported() {
+        Board board = engine.board;
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.setNumber(1);
+        checkpoint.setLast(true);
+        board.getSpace(0, 2).getActions().add(checkpoint);
+
+        Player[] reported = new Player[1];
+        engine.setGameOverListener((b, winner) -> reported[0] = winner);
+
+        engine.startProgrammingPhase();
+        Player player1 = board.getPlayer(0);
+        player1.getProgramField(0).setCard(new CommandCard(Command.FAST_FORWARD));
+        player1.getProgramField(1).setCard(new CommandCard(Command.FORWARD));
+        engine.finishProgrammingPhase();
+
+        Player winner = engine.executeRegisters();
+
+        assertEquals(player1, winner, "Player 0 should have won the game!");
+        assertEquals(player1, reported[0], "The listener should have been informed about the winner!");
+        assertEquals(Phase.FINISHED, board.getPhase(), "The game should be finished!");
+        assertEquals(1, engine.getRegisters(), "The game should be finished after the first register!");
+    }
+
+    @Test
+    void testInteractiveCommand() {
+        Board board = engine.board;
+        engine.setInteractionHandler((player, command) -> Command.RIGHT);
+
+        engine.startProgrammingPhase();
+        Player player1 = board.getPlayer(0);
+        player1.getProgramField(0).setCard(new CommandCard(Command.LEFT_OR_RIGHT));
+        engine.finishProgrammingPhase();
+
+        assertNull(engine.executeRegisters(), "There should be no winner!");
+        assertEquals(Heading.WEST, player1.getHeading(), "Player 0 should be heading WEST!");
+        assertEquals(Phase.PROGRAMMING, board.getPhase(), "The game should be back in the programming phase!");
+        assertEquals(Player.NO_REGISTERS, engine.getRegisters());
+    }
+
+    @Test
+    void testIndependentProgramsLookedUp() {
+        Command[] program = { Command.FORWARD, Command.LEFT, Command.FAST_FORWARD, Command.RIGHT, Command.uTURN };
+        Board[] boards = new Board[2];
+        for (int b = 0; b < 2; b++) {
+            Board board = new Board(TEST_WIDTH, TEST_HEIGHT);
+            for (int i = 0; i < 2; i++) {
+                Player player = new Player(board, null, "Player " + i);
+                board.addPlayer(player);
+                player.setSpace(board.getSpace(4 * i, 4 * i));
+            }
+            board.setCurrentPlayer(board.getPlayer(0));
+            GameEngine engine = new GameEngine(board);
+            engine.startProgrammingPhase();
+            for (int i = 0; i < 2; i++) {
+                for (int j = 0; j < Player.NO_REGISTERS; j++) {
+                    board.getPlayer(i).getProgramField(j).setCard(new CommandCard(program[j]));
+                }
+            }
+            engine.finishProgrammingPhase();
+            if (b == 0) {
+                assertTrue(engine.gameController.executeIndependentPrograms(),
+                        "The robots are too far apart to interact!");
+            } else {
+                while (board.getPhase() != Phase.PROGRAMMING) {
+                    engine.executeNextStep();
+                }
+            }
+            boards[b] = board;
+        }
+
+        assertEquals(Phase.PROGRAMMING, boards[0].getPhase());
+        for (int i = 0; i < 2; i++) {
+            Player expected = boards[1].getPlayer(i);
+            Player actual = boards[0].getPlayer(i);
+            assertEquals(expected.getSpace().x, actual.getSpace().x, "Player " + i + " should be at the same x!");
+            assertEquals(expected.getSpace().y, actual.getSpace().y, "Player " + i + " should be at the same y!");
+            assertEquals(expected.getHeading(), actual.getHeading());
+        }
+    }
+
+}
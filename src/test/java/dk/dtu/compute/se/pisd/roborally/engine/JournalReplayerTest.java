@@ -0,0 +1,59 @@
+package dk.dtu.compute.se.pisd.roborally.engine;
+
+import dk.dtu.compute.se.pisd.roborally.controller.ConveyorBelt;
+import dk.dtu.compute.se.pisd.roborally.model.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalReplayerTest {
+
+    @Test
+    void testReplayRebuildsGame() {
+        Board board = new Board(8, 8);
+        ConveyorBelt belt = new ConveyorBelt();
+        belt.setHeading(Heading.EAST);
+        board.getSpace(0, 3).getActions().add(belt);
+        for (int i = 0; i < 2; i++) {
+            Player player = new Player(board, null, "Player " + i);
+            board.addPlayer(player);
+            player.setSpace(board.getSpace(i, 0));
+        }
+        board.setCurrentPlayer(board.getPlayer(0));
+
+        GameEngine engine = new GameEngine(board);
+        GameJournal journal = new GameJournal(board);
+        engine.gameController.setJournal(journal);
+        engine.setInteractionHandler((player, command) -> Command.RIGHT);
+
+        engine.startProgrammingPhase();
+        Player player1 = board.getPlayer(0);
+        player1.getProgramField(0).setCard(new CommandCard(Command.FAST_FORWARD));
+        player1.getProgramField(1).setCard(new CommandCard(Command.FORWARD));
+        player1.getProgramField(2).setCard(new CommandCard(Command.LEFT_OR_RIGHT));
+        engine.finishProgrammingPhase();
+        engine.executeRegisters();
+
+        Board replayed = new Board(8, 8);
+        replayed.getSpace(0, 3).getActions().add(belt);
+        JournalReplayer.replay(journal, replayed, journal.getEvents());
+
+        assertEquals(board.getPhase(), replayed.getPhase());
+        for (int i = 0; i < 2; i++) {
+            Player expected = board.getPlayer(i);
+            Player actual = replayed.getPlayer(i);
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getSpace().x, actual.getSpace().x, "Player " + i + " should be at the same x!");
+            assertEquals(expected.getSpace().y, actual.getSpace().y, "Player " + i + " should be at the same y!");
+            assertEquals(expected.getHeading(), actual.getHeading(), "Player " + i + " should have the same heading!");
+        }
+        assertEquals(1, player1.getSpace().x, "Player 0 should have been moved by the conveyor belt!");
+
+        GameJournal copy = new GameJournal(journal.toByteArray());
+        assertEquals(journal.getEvents(), copy.getEvents(), "The number of events should be read from the bytes!");
+        assertEquals(journal.size(), copy.size());
+        Board partial = JournalReplayer.replay(copy, new Board(8, 8), 0);
+        assertEquals(0, partial.getPlayer(0).getSpace().y, "Without events, player 0 should be at the start!");
+    }
+
+}
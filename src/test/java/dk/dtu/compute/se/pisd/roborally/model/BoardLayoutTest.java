@@ -0,0 +1,43 @@
+package dk.dtu.compute.se.pisd.roborally.model;
+
+import dk.dtu.compute.se.pisd.roborally.controller.BoardFactory;
+import dk.dtu.compute.se.pisd.roborally.fileaccess.LoadBoard;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardLayoutTest {
+
+    @Test
+    void testLayoutSharedByGames() {
+        Board first = BoardFactory.getInstance().createBoard("Simple");
+        Board second = BoardFactory.getInstance().createBoard("Simple");
+
+        assertNotSame(first, second);
+        assertNotNull(first.getLayout());
+        assertSame(first.getLayout(), second.getLayout(), "Games on the same board should share the layout!");
+        assertSame(first.getLayout(), LoadBoard.loadBoard("Simple").getLayout(),
+                "Boards loaded by their name should share the layout, too!");
+        assertSame(first.getLayout().getNeighbours(), first.getNeighbours(), "The neighbours should not be copied!");
+        assertSame(first.getNeighbours(), second.getNeighbours());
+        assertEquals(0, first.getCreatedSpaces(), "No spaces should be created before they are needed!");
+        assertEquals(first.getLayout().getWallMask(0), first.getWallMask(0));
+        assertEquals(0, first.getCreatedSpaces());
+        assertSame(first.getSpace(0, 0).getWalls(), second.getSpace(0, 0).getWalls());
+        assertSame(first.getSpace(0, 0).getActions().get(0), second.getSpace(0, 0).getActions().get(0));
+        assertTrue(first.getSpace(0, 0).hasWall(Heading.SOUTH));
+        assertNull(first.getNeighbour(first.getSpace(0, 0), Heading.SOUTH));
+        assertEquals(2, first.getLayout().getCheckpoints());
+        assertEquals(first.getIndex(first.getSpace(1, 4)), first.getLayout().getCheckpointCell(1));
+        assertThrows(UnsupportedOperationException.class,
+                () -> first.getSpace(1, 1).getWalls().add(Heading.NORTH));
+
+        Player player = new Player(first, null, "Player 1");
+        first.addPlayer(player);
+        player.setSpace(first.getSpace(2, 2));
+        assertNull(second.getSpace(2, 2).getPlayer(), "The state of a game should not be shared!");
+        assertTrue(second.getCreatedSpaces() < second.width * second.height,
+                "Only the spaces that were used should be created!");
+    }
+
+}
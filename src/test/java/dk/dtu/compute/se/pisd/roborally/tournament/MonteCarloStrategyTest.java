@@ -0,0 +1,50 @@
+package dk.dtu.compute.se.pisd.roborally.tournament;
+
+import dk.dtu.compute.se.pisd.roborally.controller.Checkpoint;
+import dk.dtu.compute.se.pisd.roborally.engine.GameEngine;
+import dk.dtu.compute.se.pisd.roborally.model.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonteCarloStrategyTest {
+
+    @Test
+    void testMonteCarloFindsWinningProgram() {
+        Board board = new Board(8, 8);
+        board.setSeed(7);
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.setNumber(1);
+        checkpoint.setLast(true);
+        board.getSpace(1, 3).getActions().add(checkpoint);
+        for (int i = 0; i < 2; i++) {
+            Player player = new Player(board, null, "Bot " + i);
+            board.addPlayer(player);
+            player.setSpace(board.getSpace(4 * i, 0));
+        }
+        board.setCurrentPlayer(board.getPlayer(0));
+
+        GameEngine engine = new GameEngine(board);
+        engine.startProgrammingPhase();
+        Player player = board.getPlayer(0);
+        Command[] hand = { Command.uTURN, Command.BACKWARD, Command.FORWARD, Command.LEFT,
+                Command.FAST_FORWARD, Command.RIGHT, Command.FORWARD, Command.LEFT };
+        for (int i = 0; i < Player.NO_CARDS; i++) {
+            player.getCardField(i).setCard(new CommandCard(hand[i]));
+        }
+
+        MonteCarloStrategy strategy = new MonteCarloStrategy(7);
+        strategy.setTimeBudget(10000);
+        strategy.setMaxIterations(3000);
+        strategy.setParallelism(2);
+        strategy.program(player);
+
+        for (int i = 0; i < Player.NO_REGISTERS; i++) {
+            assertNotNull(player.getProgramField(i).getCard(), "All registers should be programmed!");
+        }
+        new FirstCardsStrategy().program(board.getPlayer(1));
+        engine.finishProgrammingPhase();
+        assertEquals(player, engine.executeRegisters(), "The chosen program should win the game!");
+    }
+
+}
@@ -0,0 +1,49 @@
+package dk.dtu.compute.se.pisd.roborally.tournament;
+
+import dk.dtu.compute.se.pisd.roborally.controller.Checkpoint;
+import dk.dtu.compute.se.pisd.roborally.engine.GameEngine;
+import dk.dtu.compute.se.pisd.roborally.model.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlannerStrategyTest {
+
+    @Test
+    void testPlannerFindsWinningProgram() {
+        Board board = new Board(8, 8);
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.setNumber(1);
+        checkpoint.setLast(true);
+        board.getSpace(1, 3).getActions().add(checkpoint);
+        Player player = new Player(board, null, "Bot");
+        board.addPlayer(player);
+        player.setSpace(board.getSpace(0, 0));
+        board.setCurrentPlayer(player);
+
+        GameEngine engine = new GameEngine(board);
+        engine.startProgrammingPhase();
+        Command[] hand = { Command.uTURN, Command.BACKWARD, Command.FORWARD, Command.LEFT,
+                Command.FAST_FORWARD, Command.RIGHT, Command.FORWARD, Command.LEFT };
+        for (int i = 0; i < Player.NO_CARDS; i++) {
+            player.getCardField(i).setCard(new CommandCard(hand[i]));
+        }
+
+        new PlannerStrategy().program(player);
+
+        int cards = 0;
+        for (int i = 0; i < Player.NO_REGISTERS; i++) {
+            assertNotNull(player.getProgramField(i).getCard(), "All registers should be programmed!");
+        }
+        for (int i = 0; i < Player.NO_CARDS; i++) {
+            if (player.getCardField(i).getCard() != null) {
+                cards++;
+            }
+        }
+        assertEquals(Player.NO_CARDS - Player.NO_REGISTERS, cards, "The unused cards should stay in the hand!");
+
+        engine.finishProgrammingPhase();
+        assertEquals(player, engine.executeRegisters(), "The planned program should win the game!");
+    }
+
+}
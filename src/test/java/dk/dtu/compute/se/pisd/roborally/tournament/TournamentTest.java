@@ -0,0 +1,73 @@
+package dk.dtu.compute.se.pisd.roborally.tournament;
+
+import dk.dtu.compute.se.pisd.roborally.engine.ProgramOutcomes;
+import dk.dtu.compute.se.pisd.roborally.fileaccess.LoadBoard;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TournamentTest {
+
+    @Test
+    void testAllGamesPlayed() {
+        List<BotStrategy> strategies = Arrays.asList(new FirstCardsStrategy(), new FirstCardsStrategy());
+        Tournament tournament = new Tournament("Simple", strategies, 20);
+        tournament.setMaxRounds(10);
+        tournament.setParallelism(4);
+
+        ConcurrentLinkedQueue<GameResult> results = new ConcurrentLinkedQueue<>();
+        tournament.run(results::add);
+
+        assertEquals(20, results.size(), "All games of the tournament should have been played!");
+        boolean[] played = new boolean[20];
+        for (GameResult result: results) {
+            assertFalse(played[result.game], "Game " + result.game + " should have been played only once!");
+            played[result.game] = true;
+            assertTrue(result.registers > 0);
+            assertTrue(result.registers <= 10 * 5);
+            assertEquals(2, result.checkpoints.length);
+            assertEquals(2, result.checkpoints[0].length, "The simple board has two checkpoints!");
+            if (result.winner >= 0) {
+                assertEquals(result.registers, result.checkpoints[result.winner][1]);
+            }
+        }
+    }
+
+    @Test
+    void testProgramOutcomesUsed() {
+        // all games on the board share the outcomes of its layout
+        ProgramOutcomes outcomes = ProgramOutcomes.of(LoadBoard.loadBoard("Simple"));
+        long lookups = outcomes.getHits() + outcomes.getMisses();
+
+        List<BotStrategy> strategies = Arrays.asList(new FirstCardsStrategy(), new FirstCardsStrategy());
+        Tournament tournament = new Tournament("Simple", strategies, 20);
+        tournament.setMaxRounds(10);
+        tournament.run(result -> {});
+
+        assertTrue(outcomes.getHits() + outcomes.getMisses() > lookups,
+                "The rounds of the games should be looked up in the program outcomes!");
+    }
+
+    @Test
+    void testReplayFromSeed() {
+        List<BotStrategy> strategies = Arrays.asList(new FirstCardsStrategy(), new FirstCardsStrategy());
+        Tournament tournament = new Tournament("Advanced", strategies, 10);
+        tournament.setSeed(42);
+
+        for (int game = 0; game < 10; game++) {
+            GameResult first = tournament.playGame(game);
+            GameResult second = tournament.playGame(game);
+            assertEquals(first.seed, second.seed);
+            assertEquals(first.winner, second.winner, "The replayed game should have the same winner!");
+            assertEquals(first.registers, second.registers, "The replayed game should have the same length!");
+            for (int i = 0; i < first.checkpoints.length; i++) {
+                assertArrayEquals(first.checkpoints[i], second.checkpoints[i]);
+            }
+        }
+    }
+
+}